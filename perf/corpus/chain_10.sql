@@ -0,0 +1,11 @@
+SELECT *
+FROM t0, t1, t2, t3, t4, t5, t6, t7, t8, t9
+WHERE t0.b = t1.a
+  AND t1.b = t2.a
+  AND t2.b = t3.a
+  AND t3.b = t4.a
+  AND t4.b = t5.a
+  AND t5.b = t6.a
+  AND t6.b = t7.a
+  AND t7.b = t8.a
+  AND t8.b = t9.a
@@ -0,0 +1,101 @@
+SELECT *
+FROM t0, t1, t2, t3, t4, t5, t6, t7, t8, t9, t10, t11, t12, t13, t14, t15, t16, t17, t18, t19, t20, t21, t22, t23, t24, t25, t26, t27, t28, t29, t30, t31, t32, t33, t34, t35, t36, t37, t38, t39, t40, t41, t42, t43, t44, t45, t46, t47, t48, t49, t50, t51, t52, t53, t54, t55, t56, t57, t58, t59, t60, t61, t62, t63, t64, t65, t66, t67, t68, t69, t70, t71, t72, t73, t74, t75, t76, t77, t78, t79, t80, t81, t82, t83, t84, t85, t86, t87, t88, t89, t90, t91, t92, t93, t94, t95, t96, t97, t98, t99
+WHERE t0.b = t1.a
+  AND t1.b = t2.a
+  AND t2.b = t3.a
+  AND t3.b = t4.a
+  AND t4.b = t5.a
+  AND t5.b = t6.a
+  AND t6.b = t7.a
+  AND t7.b = t8.a
+  AND t8.b = t9.a
+  AND t9.b = t10.a
+  AND t10.b = t11.a
+  AND t11.b = t12.a
+  AND t12.b = t13.a
+  AND t13.b = t14.a
+  AND t14.b = t15.a
+  AND t15.b = t16.a
+  AND t16.b = t17.a
+  AND t17.b = t18.a
+  AND t18.b = t19.a
+  AND t19.b = t20.a
+  AND t20.b = t21.a
+  AND t21.b = t22.a
+  AND t22.b = t23.a
+  AND t23.b = t24.a
+  AND t24.b = t25.a
+  AND t25.b = t26.a
+  AND t26.b = t27.a
+  AND t27.b = t28.a
+  AND t28.b = t29.a
+  AND t29.b = t30.a
+  AND t30.b = t31.a
+  AND t31.b = t32.a
+  AND t32.b = t33.a
+  AND t33.b = t34.a
+  AND t34.b = t35.a
+  AND t35.b = t36.a
+  AND t36.b = t37.a
+  AND t37.b = t38.a
+  AND t38.b = t39.a
+  AND t39.b = t40.a
+  AND t40.b = t41.a
+  AND t41.b = t42.a
+  AND t42.b = t43.a
+  AND t43.b = t44.a
+  AND t44.b = t45.a
+  AND t45.b = t46.a
+  AND t46.b = t47.a
+  AND t47.b = t48.a
+  AND t48.b = t49.a
+  AND t49.b = t50.a
+  AND t50.b = t51.a
+  AND t51.b = t52.a
+  AND t52.b = t53.a
+  AND t53.b = t54.a
+  AND t54.b = t55.a
+  AND t55.b = t56.a
+  AND t56.b = t57.a
+  AND t57.b = t58.a
+  AND t58.b = t59.a
+  AND t59.b = t60.a
+  AND t60.b = t61.a
+  AND t61.b = t62.a
+  AND t62.b = t63.a
+  AND t63.b = t64.a
+  AND t64.b = t65.a
+  AND t65.b = t66.a
+  AND t66.b = t67.a
+  AND t67.b = t68.a
+  AND t68.b = t69.a
+  AND t69.b = t70.a
+  AND t70.b = t71.a
+  AND t71.b = t72.a
+  AND t72.b = t73.a
+  AND t73.b = t74.a
+  AND t74.b = t75.a
+  AND t75.b = t76.a
+  AND t76.b = t77.a
+  AND t77.b = t78.a
+  AND t78.b = t79.a
+  AND t79.b = t80.a
+  AND t80.b = t81.a
+  AND t81.b = t82.a
+  AND t82.b = t83.a
+  AND t83.b = t84.a
+  AND t84.b = t85.a
+  AND t85.b = t86.a
+  AND t86.b = t87.a
+  AND t87.b = t88.a
+  AND t88.b = t89.a
+  AND t89.b = t90.a
+  AND t90.b = t91.a
+  AND t91.b = t92.a
+  AND t92.b = t93.a
+  AND t93.b = t94.a
+  AND t94.b = t95.a
+  AND t95.b = t96.a
+  AND t96.b = t97.a
+  AND t97.b = t98.a
+  AND t98.b = t99.a
@@ -0,0 +1,22 @@
+SELECT *
+FROM t0, t1, t2, t3, t4, t5, t6, t7, t8, t9, t10, t11, t12, t13, t14, t15, t16, t17, t18, t19
+WHERE t0.b = t1.a
+  AND t1.b = t2.a
+  AND t2.b = t3.a
+  AND t3.b = t4.a
+  AND t4.b = t5.a
+  AND t5.b = t6.a
+  AND t6.b = t7.a
+  AND t7.b = t8.a
+  AND t8.b = t9.a
+  AND t9.b = t10.a
+  AND t10.b = t11.a
+  AND t11.b = t12.a
+  AND t12.b = t13.a
+  AND t13.b = t14.a
+  AND t14.b = t15.a
+  AND t15.b = t16.a
+  AND t16.b = t17.a
+  AND t17.b = t18.a
+  AND t18.b = t19.a
+  AND t19.b = t0.a
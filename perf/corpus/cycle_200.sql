@@ -0,0 +1,202 @@
+SELECT *
+FROM t0, t1, t2, t3, t4, t5, t6, t7, t8, t9, t10, t11, t12, t13, t14, t15, t16, t17, t18, t19, t20, t21, t22, t23, t24, t25, t26, t27, t28, t29, t30, t31, t32, t33, t34, t35, t36, t37, t38, t39, t40, t41, t42, t43, t44, t45, t46, t47, t48, t49, t50, t51, t52, t53, t54, t55, t56, t57, t58, t59, t60, t61, t62, t63, t64, t65, t66, t67, t68, t69, t70, t71, t72, t73, t74, t75, t76, t77, t78, t79, t80, t81, t82, t83, t84, t85, t86, t87, t88, t89, t90, t91, t92, t93, t94, t95, t96, t97, t98, t99, t100, t101, t102, t103, t104, t105, t106, t107, t108, t109, t110, t111, t112, t113, t114, t115, t116, t117, t118, t119, t120, t121, t122, t123, t124, t125, t126, t127, t128, t129, t130, t131, t132, t133, t134, t135, t136, t137, t138, t139, t140, t141, t142, t143, t144, t145, t146, t147, t148, t149, t150, t151, t152, t153, t154, t155, t156, t157, t158, t159, t160, t161, t162, t163, t164, t165, t166, t167, t168, t169, t170, t171, t172, t173, t174, t175, t176, t177, t178, t179, t180, t181, t182, t183, t184, t185, t186, t187, t188, t189, t190, t191, t192, t193, t194, t195, t196, t197, t198, t199
+WHERE t0.b = t1.a
+  AND t1.b = t2.a
+  AND t2.b = t3.a
+  AND t3.b = t4.a
+  AND t4.b = t5.a
+  AND t5.b = t6.a
+  AND t6.b = t7.a
+  AND t7.b = t8.a
+  AND t8.b = t9.a
+  AND t9.b = t10.a
+  AND t10.b = t11.a
+  AND t11.b = t12.a
+  AND t12.b = t13.a
+  AND t13.b = t14.a
+  AND t14.b = t15.a
+  AND t15.b = t16.a
+  AND t16.b = t17.a
+  AND t17.b = t18.a
+  AND t18.b = t19.a
+  AND t19.b = t20.a
+  AND t20.b = t21.a
+  AND t21.b = t22.a
+  AND t22.b = t23.a
+  AND t23.b = t24.a
+  AND t24.b = t25.a
+  AND t25.b = t26.a
+  AND t26.b = t27.a
+  AND t27.b = t28.a
+  AND t28.b = t29.a
+  AND t29.b = t30.a
+  AND t30.b = t31.a
+  AND t31.b = t32.a
+  AND t32.b = t33.a
+  AND t33.b = t34.a
+  AND t34.b = t35.a
+  AND t35.b = t36.a
+  AND t36.b = t37.a
+  AND t37.b = t38.a
+  AND t38.b = t39.a
+  AND t39.b = t40.a
+  AND t40.b = t41.a
+  AND t41.b = t42.a
+  AND t42.b = t43.a
+  AND t43.b = t44.a
+  AND t44.b = t45.a
+  AND t45.b = t46.a
+  AND t46.b = t47.a
+  AND t47.b = t48.a
+  AND t48.b = t49.a
+  AND t49.b = t50.a
+  AND t50.b = t51.a
+  AND t51.b = t52.a
+  AND t52.b = t53.a
+  AND t53.b = t54.a
+  AND t54.b = t55.a
+  AND t55.b = t56.a
+  AND t56.b = t57.a
+  AND t57.b = t58.a
+  AND t58.b = t59.a
+  AND t59.b = t60.a
+  AND t60.b = t61.a
+  AND t61.b = t62.a
+  AND t62.b = t63.a
+  AND t63.b = t64.a
+  AND t64.b = t65.a
+  AND t65.b = t66.a
+  AND t66.b = t67.a
+  AND t67.b = t68.a
+  AND t68.b = t69.a
+  AND t69.b = t70.a
+  AND t70.b = t71.a
+  AND t71.b = t72.a
+  AND t72.b = t73.a
+  AND t73.b = t74.a
+  AND t74.b = t75.a
+  AND t75.b = t76.a
+  AND t76.b = t77.a
+  AND t77.b = t78.a
+  AND t78.b = t79.a
+  AND t79.b = t80.a
+  AND t80.b = t81.a
+  AND t81.b = t82.a
+  AND t82.b = t83.a
+  AND t83.b = t84.a
+  AND t84.b = t85.a
+  AND t85.b = t86.a
+  AND t86.b = t87.a
+  AND t87.b = t88.a
+  AND t88.b = t89.a
+  AND t89.b = t90.a
+  AND t90.b = t91.a
+  AND t91.b = t92.a
+  AND t92.b = t93.a
+  AND t93.b = t94.a
+  AND t94.b = t95.a
+  AND t95.b = t96.a
+  AND t96.b = t97.a
+  AND t97.b = t98.a
+  AND t98.b = t99.a
+  AND t99.b = t100.a
+  AND t100.b = t101.a
+  AND t101.b = t102.a
+  AND t102.b = t103.a
+  AND t103.b = t104.a
+  AND t104.b = t105.a
+  AND t105.b = t106.a
+  AND t106.b = t107.a
+  AND t107.b = t108.a
+  AND t108.b = t109.a
+  AND t109.b = t110.a
+  AND t110.b = t111.a
+  AND t111.b = t112.a
+  AND t112.b = t113.a
+  AND t113.b = t114.a
+  AND t114.b = t115.a
+  AND t115.b = t116.a
+  AND t116.b = t117.a
+  AND t117.b = t118.a
+  AND t118.b = t119.a
+  AND t119.b = t120.a
+  AND t120.b = t121.a
+  AND t121.b = t122.a
+  AND t122.b = t123.a
+  AND t123.b = t124.a
+  AND t124.b = t125.a
+  AND t125.b = t126.a
+  AND t126.b = t127.a
+  AND t127.b = t128.a
+  AND t128.b = t129.a
+  AND t129.b = t130.a
+  AND t130.b = t131.a
+  AND t131.b = t132.a
+  AND t132.b = t133.a
+  AND t133.b = t134.a
+  AND t134.b = t135.a
+  AND t135.b = t136.a
+  AND t136.b = t137.a
+  AND t137.b = t138.a
+  AND t138.b = t139.a
+  AND t139.b = t140.a
+  AND t140.b = t141.a
+  AND t141.b = t142.a
+  AND t142.b = t143.a
+  AND t143.b = t144.a
+  AND t144.b = t145.a
+  AND t145.b = t146.a
+  AND t146.b = t147.a
+  AND t147.b = t148.a
+  AND t148.b = t149.a
+  AND t149.b = t150.a
+  AND t150.b = t151.a
+  AND t151.b = t152.a
+  AND t152.b = t153.a
+  AND t153.b = t154.a
+  AND t154.b = t155.a
+  AND t155.b = t156.a
+  AND t156.b = t157.a
+  AND t157.b = t158.a
+  AND t158.b = t159.a
+  AND t159.b = t160.a
+  AND t160.b = t161.a
+  AND t161.b = t162.a
+  AND t162.b = t163.a
+  AND t163.b = t164.a
+  AND t164.b = t165.a
+  AND t165.b = t166.a
+  AND t166.b = t167.a
+  AND t167.b = t168.a
+  AND t168.b = t169.a
+  AND t169.b = t170.a
+  AND t170.b = t171.a
+  AND t171.b = t172.a
+  AND t172.b = t173.a
+  AND t173.b = t174.a
+  AND t174.b = t175.a
+  AND t175.b = t176.a
+  AND t176.b = t177.a
+  AND t177.b = t178.a
+  AND t178.b = t179.a
+  AND t179.b = t180.a
+  AND t180.b = t181.a
+  AND t181.b = t182.a
+  AND t182.b = t183.a
+  AND t183.b = t184.a
+  AND t184.b = t185.a
+  AND t185.b = t186.a
+  AND t186.b = t187.a
+  AND t187.b = t188.a
+  AND t188.b = t189.a
+  AND t189.b = t190.a
+  AND t190.b = t191.a
+  AND t191.b = t192.a
+  AND t192.b = t193.a
+  AND t193.b = t194.a
+  AND t194.b = t195.a
+  AND t195.b = t196.a
+  AND t196.b = t197.a
+  AND t197.b = t198.a
+  AND t198.b = t199.a
+  AND t199.b = t0.a
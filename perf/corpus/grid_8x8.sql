@@ -0,0 +1,114 @@
+SELECT *
+FROM g0_0, g0_1, g0_2, g0_3, g0_4, g0_5, g0_6, g0_7, g1_0, g1_1, g1_2, g1_3, g1_4, g1_5, g1_6, g1_7, g2_0, g2_1, g2_2, g2_3, g2_4, g2_5, g2_6, g2_7, g3_0, g3_1, g3_2, g3_3, g3_4, g3_5, g3_6, g3_7, g4_0, g4_1, g4_2, g4_3, g4_4, g4_5, g4_6, g4_7, g5_0, g5_1, g5_2, g5_3, g5_4, g5_5, g5_6, g5_7, g6_0, g6_1, g6_2, g6_3, g6_4, g6_5, g6_6, g6_7, g7_0, g7_1, g7_2, g7_3, g7_4, g7_5, g7_6, g7_7
+WHERE g0_0.e = g0_1.w
+  AND g0_0.s = g1_0.n
+  AND g0_1.e = g0_2.w
+  AND g0_1.s = g1_1.n
+  AND g0_2.e = g0_3.w
+  AND g0_2.s = g1_2.n
+  AND g0_3.e = g0_4.w
+  AND g0_3.s = g1_3.n
+  AND g0_4.e = g0_5.w
+  AND g0_4.s = g1_4.n
+  AND g0_5.e = g0_6.w
+  AND g0_5.s = g1_5.n
+  AND g0_6.e = g0_7.w
+  AND g0_6.s = g1_6.n
+  AND g0_7.s = g1_7.n
+  AND g1_0.e = g1_1.w
+  AND g1_0.s = g2_0.n
+  AND g1_1.e = g1_2.w
+  AND g1_1.s = g2_1.n
+  AND g1_2.e = g1_3.w
+  AND g1_2.s = g2_2.n
+  AND g1_3.e = g1_4.w
+  AND g1_3.s = g2_3.n
+  AND g1_4.e = g1_5.w
+  AND g1_4.s = g2_4.n
+  AND g1_5.e = g1_6.w
+  AND g1_5.s = g2_5.n
+  AND g1_6.e = g1_7.w
+  AND g1_6.s = g2_6.n
+  AND g1_7.s = g2_7.n
+  AND g2_0.e = g2_1.w
+  AND g2_0.s = g3_0.n
+  AND g2_1.e = g2_2.w
+  AND g2_1.s = g3_1.n
+  AND g2_2.e = g2_3.w
+  AND g2_2.s = g3_2.n
+  AND g2_3.e = g2_4.w
+  AND g2_3.s = g3_3.n
+  AND g2_4.e = g2_5.w
+  AND g2_4.s = g3_4.n
+  AND g2_5.e = g2_6.w
+  AND g2_5.s = g3_5.n
+  AND g2_6.e = g2_7.w
+  AND g2_6.s = g3_6.n
+  AND g2_7.s = g3_7.n
+  AND g3_0.e = g3_1.w
+  AND g3_0.s = g4_0.n
+  AND g3_1.e = g3_2.w
+  AND g3_1.s = g4_1.n
+  AND g3_2.e = g3_3.w
+  AND g3_2.s = g4_2.n
+  AND g3_3.e = g3_4.w
+  AND g3_3.s = g4_3.n
+  AND g3_4.e = g3_5.w
+  AND g3_4.s = g4_4.n
+  AND g3_5.e = g3_6.w
+  AND g3_5.s = g4_5.n
+  AND g3_6.e = g3_7.w
+  AND g3_6.s = g4_6.n
+  AND g3_7.s = g4_7.n
+  AND g4_0.e = g4_1.w
+  AND g4_0.s = g5_0.n
+  AND g4_1.e = g4_2.w
+  AND g4_1.s = g5_1.n
+  AND g4_2.e = g4_3.w
+  AND g4_2.s = g5_2.n
+  AND g4_3.e = g4_4.w
+  AND g4_3.s = g5_3.n
+  AND g4_4.e = g4_5.w
+  AND g4_4.s = g5_4.n
+  AND g4_5.e = g4_6.w
+  AND g4_5.s = g5_5.n
+  AND g4_6.e = g4_7.w
+  AND g4_6.s = g5_6.n
+  AND g4_7.s = g5_7.n
+  AND g5_0.e = g5_1.w
+  AND g5_0.s = g6_0.n
+  AND g5_1.e = g5_2.w
+  AND g5_1.s = g6_1.n
+  AND g5_2.e = g5_3.w
+  AND g5_2.s = g6_2.n
+  AND g5_3.e = g5_4.w
+  AND g5_3.s = g6_3.n
+  AND g5_4.e = g5_5.w
+  AND g5_4.s = g6_4.n
+  AND g5_5.e = g5_6.w
+  AND g5_5.s = g6_5.n
+  AND g5_6.e = g5_7.w
+  AND g5_6.s = g6_6.n
+  AND g5_7.s = g6_7.n
+  AND g6_0.e = g6_1.w
+  AND g6_0.s = g7_0.n
+  AND g6_1.e = g6_2.w
+  AND g6_1.s = g7_1.n
+  AND g6_2.e = g6_3.w
+  AND g6_2.s = g7_2.n
+  AND g6_3.e = g6_4.w
+  AND g6_3.s = g7_3.n
+  AND g6_4.e = g6_5.w
+  AND g6_4.s = g7_4.n
+  AND g6_5.e = g6_6.w
+  AND g6_5.s = g7_5.n
+  AND g6_6.e = g6_7.w
+  AND g6_6.s = g7_6.n
+  AND g6_7.s = g7_7.n
+  AND g7_0.e = g7_1.w
+  AND g7_1.e = g7_2.w
+  AND g7_2.e = g7_3.w
+  AND g7_3.e = g7_4.w
+  AND g7_4.e = g7_5.w
+  AND g7_5.e = g7_6.w
+  AND g7_6.e = g7_7.w
@@ -0,0 +1,52 @@
+SELECT *
+FROM fact, dim0, dim1, dim2, dim3, dim4, dim5, dim6, dim7, dim8, dim9, dim10, dim11, dim12, dim13, dim14, dim15, dim16, dim17, dim18, dim19, dim20, dim21, dim22, dim23, dim24, dim25, dim26, dim27, dim28, dim29, dim30, dim31, dim32, dim33, dim34, dim35, dim36, dim37, dim38, dim39, dim40, dim41, dim42, dim43, dim44, dim45, dim46, dim47, dim48, dim49
+WHERE fact.k0 = dim0.id
+  AND fact.k1 = dim1.id
+  AND fact.k2 = dim2.id
+  AND fact.k3 = dim3.id
+  AND fact.k4 = dim4.id
+  AND fact.k5 = dim5.id
+  AND fact.k6 = dim6.id
+  AND fact.k7 = dim7.id
+  AND fact.k8 = dim8.id
+  AND fact.k9 = dim9.id
+  AND fact.k10 = dim10.id
+  AND fact.k11 = dim11.id
+  AND fact.k12 = dim12.id
+  AND fact.k13 = dim13.id
+  AND fact.k14 = dim14.id
+  AND fact.k15 = dim15.id
+  AND fact.k16 = dim16.id
+  AND fact.k17 = dim17.id
+  AND fact.k18 = dim18.id
+  AND fact.k19 = dim19.id
+  AND fact.k20 = dim20.id
+  AND fact.k21 = dim21.id
+  AND fact.k22 = dim22.id
+  AND fact.k23 = dim23.id
+  AND fact.k24 = dim24.id
+  AND fact.k25 = dim25.id
+  AND fact.k26 = dim26.id
+  AND fact.k27 = dim27.id
+  AND fact.k28 = dim28.id
+  AND fact.k29 = dim29.id
+  AND fact.k30 = dim30.id
+  AND fact.k31 = dim31.id
+  AND fact.k32 = dim32.id
+  AND fact.k33 = dim33.id
+  AND fact.k34 = dim34.id
+  AND fact.k35 = dim35.id
+  AND fact.k36 = dim36.id
+  AND fact.k37 = dim37.id
+  AND fact.k38 = dim38.id
+  AND fact.k39 = dim39.id
+  AND fact.k40 = dim40.id
+  AND fact.k41 = dim41.id
+  AND fact.k42 = dim42.id
+  AND fact.k43 = dim43.id
+  AND fact.k44 = dim44.id
+  AND fact.k45 = dim45.id
+  AND fact.k46 = dim46.id
+  AND fact.k47 = dim47.id
+  AND fact.k48 = dim48.id
+  AND fact.k49 = dim49.id
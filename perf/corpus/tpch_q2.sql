@@ -0,0 +1,19 @@
+SELECT supplier.s_acctbal, supplier.s_name, nation.n_name, part.p_partkey, part.p_mfgr,
+       supplier.s_address, supplier.s_phone, supplier.s_comment
+FROM part, supplier, partsupp, nation, region
+WHERE part.p_partkey = partsupp.ps_partkey
+  AND supplier.s_suppkey = partsupp.ps_suppkey
+  AND part.p_size = 15
+  AND part.p_type LIKE '%BRASS'
+  AND supplier.s_nationkey = nation.n_nationkey
+  AND nation.n_regionkey = region.r_regionkey
+  AND region.r_name = 'EUROPE'
+  AND partsupp.ps_supplycost = (
+    SELECT MIN(ps2.ps_supplycost)
+    FROM partsupp ps2, supplier s2, nation n2, region r2
+    WHERE part.p_partkey = ps2.ps_partkey
+      AND s2.s_suppkey = ps2.ps_suppkey
+      AND s2.s_nationkey = n2.n_nationkey
+      AND n2.n_regionkey = r2.r_regionkey
+      AND r2.r_name = 'EUROPE')
+ORDER BY supplier.s_acctbal DESC, nation.n_name, supplier.s_name, part.p_partkey
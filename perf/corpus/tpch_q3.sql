@@ -0,0 +1,10 @@
+SELECT lineitem.l_orderkey, SUM(lineitem.l_extendedprice * (1 - lineitem.l_discount)) AS revenue,
+       orders.o_orderdate, orders.o_shippriority
+FROM customer, orders, lineitem
+WHERE customer.c_mktsegment = 'BUILDING'
+  AND customer.c_custkey = orders.o_custkey
+  AND lineitem.l_orderkey = orders.o_orderkey
+  AND orders.o_orderdate < DATE '1995-03-15'
+  AND lineitem.l_shipdate > DATE '1995-03-15'
+GROUP BY lineitem.l_orderkey, orders.o_orderdate, orders.o_shippriority
+ORDER BY revenue DESC, orders.o_orderdate
@@ -0,0 +1,13 @@
+SELECT nation.n_name, SUM(lineitem.l_extendedprice * (1 - lineitem.l_discount)) AS revenue
+FROM customer, orders, lineitem, supplier, nation, region
+WHERE customer.c_custkey = orders.o_custkey
+  AND lineitem.l_orderkey = orders.o_orderkey
+  AND lineitem.l_suppkey = supplier.s_suppkey
+  AND customer.c_nationkey = supplier.s_nationkey
+  AND supplier.s_nationkey = nation.n_nationkey
+  AND nation.n_regionkey = region.r_regionkey
+  AND region.r_name = 'ASIA'
+  AND orders.o_orderdate >= DATE '1994-01-01'
+  AND orders.o_orderdate < DATE '1995-01-01'
+GROUP BY nation.n_name
+ORDER BY revenue DESC
@@ -0,0 +1,20 @@
+SELECT all_nations.o_year,
+       SUM(CASE WHEN all_nations.nation = 'BRAZIL' THEN all_nations.volume ELSE 0 END)
+         / SUM(all_nations.volume) AS mkt_share
+FROM (
+  SELECT EXTRACT(YEAR FROM orders.o_orderdate) AS o_year,
+         lineitem.l_extendedprice * (1 - lineitem.l_discount) AS volume,
+         n2.n_name AS nation
+  FROM part, supplier, lineitem, orders, customer, nation n1, nation n2, region
+  WHERE part.p_partkey = lineitem.l_partkey
+    AND supplier.s_suppkey = lineitem.l_suppkey
+    AND lineitem.l_orderkey = orders.o_orderkey
+    AND orders.o_custkey = customer.c_custkey
+    AND customer.c_nationkey = n1.n_nationkey
+    AND n1.n_regionkey = region.r_regionkey
+    AND region.r_name = 'AMERICA'
+    AND supplier.s_nationkey = n2.n_nationkey
+    AND orders.o_orderdate BETWEEN DATE '1995-01-01' AND DATE '1996-12-31'
+    AND part.p_type = 'ECONOMY ANODIZED STEEL') all_nations
+GROUP BY all_nations.o_year
+ORDER BY all_nations.o_year
@@ -0,0 +1,15 @@
+SELECT profit.nation, profit.o_year, SUM(profit.amount) AS sum_profit
+FROM (
+  SELECT nation.n_name AS nation, EXTRACT(YEAR FROM orders.o_orderdate) AS o_year,
+         lineitem.l_extendedprice * (1 - lineitem.l_discount)
+           - partsupp.ps_supplycost * lineitem.l_quantity AS amount
+  FROM part, supplier, lineitem, partsupp, orders, nation
+  WHERE supplier.s_suppkey = lineitem.l_suppkey
+    AND partsupp.ps_suppkey = lineitem.l_suppkey
+    AND partsupp.ps_partkey = lineitem.l_partkey
+    AND part.p_partkey = lineitem.l_partkey
+    AND orders.o_orderkey = lineitem.l_orderkey
+    AND supplier.s_nationkey = nation.n_nationkey
+    AND part.p_name LIKE '%green%') profit
+GROUP BY profit.nation, profit.o_year
+ORDER BY profit.nation, profit.o_year DESC
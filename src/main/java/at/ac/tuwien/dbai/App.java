@@ -6,25 +6,53 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import net.sf.jsqlparser.JSQLParserException;
-import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.DateTimeLiteralExpression;
+import net.sf.jsqlparser.expression.DateValue;
+import net.sf.jsqlparser.expression.DoubleValue;
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.JdbcNamedParameter;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.TimeValue;
+import net.sf.jsqlparser.expression.TimestampValue;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
 import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.AllTableColumns;
+import net.sf.jsqlparser.statement.select.FromItem;
 import net.sf.jsqlparser.statement.select.Join;
 import net.sf.jsqlparser.statement.select.PlainSelect;
 import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectBody;
+import net.sf.jsqlparser.statement.select.SelectExpressionItem;
 import net.sf.jsqlparser.statement.select.SelectItem;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.statement.select.SubJoin;
+import net.sf.jsqlparser.statement.select.SubSelect;
 import net.sf.jsqlparser.statement.select.WithItem;
-import net.sf.jsqlparser.util.TablesNamesFinder;
 
 /**
  * Hello world!
@@ -34,61 +62,400 @@ public final class App {
     }
 
     /**
-     * Says hello to the world.
+     * Converts the given query files to hypergraphs.
      * 
      * @param args The arguments of the program.
      * @throws JSQLParserException
      * @throws IOException
      */
     public static void main(String[] args) throws JSQLParserException, IOException {
-        if (args.length != 1) {
-            System.err.println("Usage: sql2hg <query>");
+        Options opts = Options.parse(args);
+        if (opts == null) {
+            System.err.println(Options.USAGE);
             System.exit(-1);
         }
 
-        String query = new String(Files.readAllBytes(Paths.get(args[0])));
-        Statement stmt = CCJSqlParserUtil.parse(query);
-        System.out.println(stmt);
-        System.out.println();
+        if (opts.statsFile != null) {
+            opts.stats = TableStatistics.load(Paths.get(opts.statsFile));
+        }
+        if (opts.dictionaryFile != null) {
+            Path dictFile = Paths.get(opts.dictionaryFile);
+            opts.dictionary = Files.exists(dictFile) ? ColumnDictionary.load(dictFile) : new ColumnDictionary();
+        }
+        if (opts.reportFile != null) {
+            opts.report = new WorkloadReport();
+        }
+        if (opts.mineFile != null) {
+            opts.miner = new SubgraphMiner();
+        }
+        DedupFilter<QueryBlocks> dedup = opts.dedupCapacity > 0 ? new DedupFilter<>(opts.dedupCapacity) : null;
+        if (opts.workerId != null) {
+            new ShardWorker(Paths.get(opts.queueDir), opts.workerId, opts, dedup).run();
+            return;
+        }
+        if (opts.workers > 0) {
+            try {
+                if (!new ShardCoordinator(opts).run()) {
+                    System.exit(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        if (opts.watchDir != null) {
+            new QueryWatcher(Paths.get(opts.watchDir), opts, dedup).run();
+            return;
+        }
+        int failed = 0;
+        int count = 0;
+        if (opts.pipeline) {
+            opts.writer = OutputWriter.start();
+        }
+        QueryReader reader = QueryReader.start(opts.files);
+        for (QueryReader.QueryFile file = reader.next(); file != null; file = reader.next()) {
+            String queryFile = file.getName();
+            if (file.getError() != null) {
+                System.err.println("Cannot read " + queryFile + ": " + file.getError());
+                failed++;
+                continue;
+            }
+            count++;
+            if (!process(queryFile, file.getContent(), opts, dedup)) {
+                failed++;
+            }
+        }
+        if (opts.writer != null) {
+            opts.writer.close();
+            System.out.println("\nWritten: " + opts.writer.statistics());
+        }
+        saveDictionary(opts);
+        if (dedup != null) {
+            System.out.println("\nDuplicates: " + dedup.getHits() + " of " + count + " queries");
+        }
+        if (opts.report != null) {
+            writeReport(opts.reportFile, opts.report);
+        }
+        if (opts.miner != null) {
+            List<String> shared = opts.miner.mine(opts.minSupport);
+            System.out.println("\nShared sub-queries: " + shared.size() + " candidates written to " + opts.mineFile);
+            if (opts.miner.getCapped() > 0) {
+                System.out.println("Only " + SubgraphMiner.MAX_SUBSETS + " sub-queries per level were followed in "
+                        + opts.miner.getCapped() + " queries, so some supports are undercounted");
+            }
+            writeToFile(opts.mineFile, shared);
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
 
-        Select selectStmt = (Select) stmt;
-        TablesNamesFinder tnf = new TablesNamesFinder();
-        List<String> tableList = tnf.getTableList(selectStmt);
-        System.out.println("Tables: " + tableList);
+    /**
+     * Saves the dictionary of the run, if any, so the next run keeps its ids.
+     */
+    static void saveDictionary(Options opts) throws IOException {
+        if (opts.dictionary != null) {
+            opts.dictionary.save(Paths.get(opts.dictionaryFile));
+        }
+    }
 
+    /**
+     * Prints the summary of a workload report and writes it to a file.
+     */
+    static void writeReport(String file, WorkloadReport report) throws IOException {
+        List<String> summary = report.summary();
+        System.out.println("\nWorkload:\n" + String.join("\n", summary));
+        writeToFile(file, summary);
+    }
+
+    /**
+     * Converts a query and writes its outputs.
+     *
+     * @param dedup filter of the templates seen so far, or {@code null}
+     * @return whether the query could be converted
+     */
+    static boolean process(String queryFile, byte[] query, Options opts, DedupFilter<QueryBlocks> dedup)
+            throws IOException {
+        StringBuilder console = new StringBuilder();
+        QueryBlocks blocks = null;
+        QueryFingerprint fingerprint = null;
+        if (dedup != null) {
+            fingerprint = QueryFingerprint.of(query);
+            blocks = dedup.get(fingerprint);
+        }
+        if (blocks == null) {
+            try {
+                blocks = convert(new String(query), console, opts.dictionary);
+            } catch (JSQLParserException | RuntimeException e) {
+                if (console.length() > 0) {
+                    emit(console.toString(), Collections.emptyMap(), opts);
+                }
+                System.err.println("Cannot convert " + queryFile + ": " + e.getMessage());
+                return false;
+            }
+            if (dedup != null) {
+                dedup.put(fingerprint, blocks);
+            }
+        } else {
+            console.append("Same template as an earlier query: ").append(queryFile).append('\n');
+        }
+        Map<String, List<String>> files = outputs(baseName(queryFile), blocks, opts, console);
+        emit(console.toString(), files, opts);
+        return true;
+    }
+
+    /**
+     * Prints the console output of a query and writes its output files, or
+     * hands them to the writer of a pipelined run.
+     */
+    static void emit(String console, Map<String, List<String>> files, Options opts) throws IOException {
+        if (opts.writer != null) {
+            opts.writer.submit(console, files);
+            return;
+        }
+        System.out.print(console);
+        for (Map.Entry<String, List<String>> file : files.entrySet()) {
+            writeToFile(file.getKey(), file.getValue());
+        }
+    }
+
+    /**
+     * Parses a query and builds the hypergraphs of its blocks.
+     *
+     * @param verbose whether to print the query, and the tables and the joins
+     *        of every block
+     */
+    static QueryBlocks convert(String query, boolean verbose) throws JSQLParserException {
+        StringBuilder log = verbose ? new StringBuilder() : null;
+        QueryBlocks blocks = convert(query, log, null);
+        if (verbose) {
+            System.out.print(log);
+        }
+        return blocks;
+    }
+
+    /**
+     * Parses a query and builds the hypergraphs of its blocks.
+     *
+     * @param log where to describe the query, and the tables and the joins of
+     *        every block, or {@code null}
+     * @param dict dictionary of the run naming the variables, or {@code null}
+     */
+    static QueryBlocks convert(String query, StringBuilder log, ColumnDictionary dict) throws JSQLParserException {
+        Statement stmt = CCJSqlParserUtil.parse(query);
+        Select selectStmt = (Select) stmt;
         JoinFinder jf = new JoinFinder();
-        List<Equality> joinList = jf.getJoinList(selectStmt);
-        System.out.println("Joins: " + joinList);
+        List<QueryBlocks.Block> blocks = jf.getBlocks(selectStmt);
+        if (log != null) {
+            log.append(stmt).append('\n');
+            for (QueryBlocks.Block b : blocks) {
+                log.append('\n');
+                if (blocks.size() > 1) {
+                    log.append("Block ").append(b.getName()).append(":\n");
+                }
+                log.append("Tables: ").append(b.getTables().keySet()).append('\n');
+                log.append("Joins: ").append(b.getJoins()).append('\n');
+                if (!b.getFilters().isEmpty()) {
+                    log.append("Filters: ").append(b.getFilters()).append('\n');
+                }
+            }
+        }
+        return QueryBlocks.build(blocks, dict);
+    }
+
+    /**
+     * Computes the hypergraph and the mapping of every block of a query, and
+     * whatever else the options ask for, and describes them on the console.
+     * The files are named after the query and the block. The outputs of the
+     * blocks of a level are computed in parallel.
+     *
+     * @return the contents of the output files by file name
+     */
+    static Map<String, List<String>> outputs(String fileBaseName, QueryBlocks blocks, Options opts,
+            StringBuilder console) {
+        Map<String, List<String>> files = new LinkedHashMap<>();
+        boolean single = blocks.getBlocks().size() == 1;
+        if (!single) {
+            List<String> deps = blocks.dependencyLines();
+            console.append("\nBlocks:\n").append(deps).append('\n');
+            files.put(fileBaseName + ".blocks", deps);
+        }
+        for (List<QueryBlocks.Block> level : blocks.getLevels()) {
+            List<Map<String, List<String>>> results = level.parallelStream()
+                    .map(b -> blockOutputs(blockBaseName(fileBaseName, b), b.getBuilder(), opts))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < level.size(); i++) {
+                String blockBase = blockBaseName(fileBaseName, level.get(i));
+                if (!single) {
+                    console.append("\nBlock ").append(level.get(i).getName()).append(":\n");
+                }
+                for (Map.Entry<String, List<String>> output : results.get(i).entrySet()) {
+                    String label = output.getKey();
+                    if (label.equals(blockBase + ".hg")) {
+                        label = "Hypergraph";
+                    } else if (label.equals(blockBase + ".map")) {
+                        label = "Mapping";
+                    } else if (label.equals(blockBase + ".weights")) {
+                        label = "Weights";
+                    }
+                    console.append('\n').append(label).append(":\n").append(output.getValue()).append('\n');
+                    files.put(output.getKey(), output.getValue());
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the base name of the files of a block: the one of the query for
+     * the main block, followed by the name of the block for the others.
+     */
+    static String blockBaseName(String fileBaseName, QueryBlocks.Block block) {
+        return QueryBlocks.MAIN.equals(block.getName()) ? fileBaseName : fileBaseName + "." + block.getName();
+    }
 
-        HypergraphBuilder builder = new HypergraphBuilder();
-        for (String t : tableList) {
-            builder.buildEdge(t);
+    /**
+     * Computes the hypergraph and the mapping of a block, and whatever else
+     * the options ask for.
+     *
+     * @return the contents of the output files by file name
+     */
+    static Map<String, List<String>> blockOutputs(String fileBaseName, HypergraphBuilder builder, Options opts) {
+        Map<String, List<String>> outputs = new LinkedHashMap<>();
+        outputs.put(fileBaseName + ".hg", builder.makeHypergraph());
+        outputs.put(fileBaseName + ".map", builder.getMapping());
+        if (opts.stats != null) {
+            outputs.put(fileBaseName + ".weights", builder.getWeights(opts.stats));
+        }
+
+        Hypergraph h;
+        if (opts.coreMillis > 0) {
+            QueryCore core = QueryCore.compute(builder, opts.coreMillis);
+            h = core.getCore();
+            outputs.put(fileBaseName + ".core.hg", h.toLines());
+            outputs.put(fileBaseName + ".core", core.reportLines());
+        } else {
+            h = builder.toHypergraph();
+        }
+        if (opts.semijoin) {
+            outputs.put(fileBaseName + ".semijoin", SemiJoinProgram.generate(builder, h));
+        }
+        if (opts.parts > 0) {
+            outputs.put(fileBaseName + ".part", partition(builder, h, opts).toLines());
         }
-        for (Equality eq : joinList) {
-            builder.buildEdge(eq.leftTable, eq.leftCol);
-            builder.buildEdge(eq.rightTable, eq.rightCol);
-            builder.buildJoin(eq);
+        outputs.putAll(analyse(fileBaseName, builder, h, opts));
+        if (opts.report != null) {
+            opts.report.add(h);
         }
+        if (opts.miner != null) {
+            opts.miner.add(fileBaseName, builder, h);
+        }
+        if (opts.split) {
+            List<Hypergraph> components = builder.getComponents();
+            if (components.size() > 1) {
+                outputs.putAll(analyseComponents(fileBaseName, builder, components, opts));
+            }
+        }
+        return outputs;
+    }
 
-        List<String> hg = builder.makeHypergraph();
-        System.out.println("\nHypergraph:\n" + hg);
+    /**
+     * Partitions the relations of a query, weighted with the statistics if
+     * there are any: every atom with the rows of its table and every variable
+     * with its distinct values. Unknown weights count as 1.
+     */
+    static HypergraphPartitioner partition(HypergraphBuilder builder, Hypergraph h, Options opts) {
+        long[] atomWeights = null;
+        long[] varWeights = null;
+        if (opts.stats != null) {
+            atomWeights = new long[h.edgeCount()];
+            for (int e = 0; e < atomWeights.length; e++) {
+                atomWeights[e] = Math.max(1, opts.stats.getRows(builder.getRelation(h.edgeName(e))));
+            }
+            Map<String, Long> distinct = builder.getDistinct(opts.stats);
+            varWeights = new long[h.vertexCount()];
+            for (int v = 0; v < varWeights.length; v++) {
+                varWeights[v] = Math.max(1, distinct.getOrDefault(h.vertexName(v), -1L));
+            }
+        }
+        return HypergraphPartitioner.partition(h, opts.parts, atomWeights, varWeights,
+                opts.imbalancePercent / 100.0);
+    }
 
-        String hgFile = new File(args[0]).getAbsolutePath();
-        int startIdx = hgFile.lastIndexOf(File.separator) + 1;
-        int endIdx = hgFile.lastIndexOf('.');
-        String fileBaseName = hgFile.substring(startIdx, endIdx);
-        hgFile = fileBaseName + ".hg";
-        writeToFile(hgFile, hg);
+    /**
+     * Runs the analyses the options ask for on a hypergraph.
+     *
+     * @param builder the builder of the query the hypergraph is part of
+     * @return the contents of the output files by file name
+     */
+    static Map<String, List<String>> analyse(String fileBaseName, HypergraphBuilder builder, Hypergraph h,
+            Options opts) {
+        LinkedHashMap<String, List<String>> outputs = new LinkedHashMap<>();
+        if (opts.reduce) {
+            HypergraphReducer.Result reduced = HypergraphReducer.reduce(h);
+            outputs.put(fileBaseName + ".red.hg", reduced.getReduced().toLines());
+            outputs.put(fileBaseName + ".trace", reduced.traceLines());
+        }
+        if (opts.agm) {
+            outputs.put(fileBaseName + ".agm", FractionalEdgeCover.agmReport(h, builder, opts.stats));
+        }
+        if (opts.orderings) {
+            outputs.put(fileBaseName + ".ord", EliminationOrdering.report(h));
+        }
+        return outputs;
+    }
 
-        List<String> map = builder.getMapping();
-        System.out.println("\nMapping:\n" + map);
+    /**
+     * Writes every connected component as its own hypergraph, named
+     * {@code <query>.c<i>.hg}, and analyses the components in parallel.
+     */
+    static Map<String, List<String>> analyseComponents(String fileBaseName, HypergraphBuilder builder,
+            List<Hypergraph> components, Options opts) {
+        List<Map<String, List<String>>> results = IntStream.range(0, components.size()).parallel()
+                .mapToObj(i -> {
+                    String name = fileBaseName + ".c" + i;
+                    LinkedHashMap<String, List<String>> outputs = new LinkedHashMap<>();
+                    outputs.put(name + ".hg", components.get(i).toLines());
+                    outputs.putAll(analyse(name, builder, components.get(i), opts));
+                    return outputs;
+                }).collect(Collectors.toList());
+        LinkedHashMap<String, List<String>> outputs = new LinkedHashMap<>();
+        for (Map<String, List<String>> result : results) {
+            outputs.putAll(result);
+        }
+        return outputs;
+    }
 
-        String mapFile = fileBaseName + ".map";
-        writeToFile(mapFile, map);
+    /**
+     * Returns the file name of a query without directory and extension. An
+     * entry of a tar bundle keeps its directories within the bundle, as the
+     * same file name often occurs in several of them, without {@code ..} or
+     * a leading {@code /}.
+     */
+    static String baseName(String queryFile) {
+        String entry = QueryReader.entryName(queryFile);
+        if (entry != null) {
+            StringBuilder sb = new StringBuilder(entry.length());
+            for (String segment : entry.split("/")) {
+                if (!segment.isEmpty() && !".".equals(segment) && !"..".equals(segment)) {
+                    sb.append(sb.length() > 0 ? "/" : "").append(segment);
+                }
+            }
+            int slash = sb.lastIndexOf("/");
+            int dot = sb.lastIndexOf(".");
+            return dot > slash + 1 ? sb.substring(0, dot) : sb.toString();
+        }
+        String path = new File(queryFile).getAbsolutePath();
+        int startIdx = path.lastIndexOf(File.separator) + 1;
+        int endIdx = path.lastIndexOf('.');
+        return endIdx > startIdx ? path.substring(startIdx, endIdx) : path.substring(startIdx);
     }
 
     public static void writeToFile(String filename, List<String> content) throws IOException {
         Path filePath = Paths.get(filename);
+        if (filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
         if (!Files.exists(filePath))
             Files.createFile(filePath);
         Files.write(filePath, content, StandardCharsets.UTF_8);
@@ -100,11 +467,11 @@ public final class App {
         String rightTable;
         String rightCol;
 
-        public Equality(Column left, Column right) {
-            this.leftTable = left.getTable().getFullyQualifiedName();
-            this.leftCol = left.getColumnName();
-            this.rightTable = right.getTable().getFullyQualifiedName();
-            this.rightCol = right.getColumnName();
+        public Equality(String leftTable, String leftCol, String rightTable, String rightCol) {
+            this.leftTable = leftTable;
+            this.leftCol = leftCol;
+            this.rightTable = rightTable;
+            this.rightCol = rightCol;
         }
 
         @Override
@@ -113,48 +480,158 @@ public final class App {
         }
     }
 
+    /**
+     * Selection {@code table.col = value} of a column with a literal, or with
+     * a column of an enclosing block, which is constant for each of its rows.
+     */
+    static class Selection {
+        String table;
+        String col;
+        String value;
+
+        public Selection(String table, String col, String value) {
+            this.table = table;
+            this.col = col;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return table + "." + col + " = " + value;
+        }
+    }
+
+    /**
+     * Any other condition of a {@code WHERE} or {@code ON} clause, e.g. a
+     * comparison, {@code LIKE} or a disjunction, with the atoms of the block
+     * it refers to, directly or in a correlated subquery.
+     */
+    static class Filter {
+        String condition;
+        /** The atoms, or {@code null} if an unqualified column is ambiguous. */
+        Set<String> atoms;
+
+        public Filter(String condition, Set<String> atoms) {
+            this.condition = condition;
+            this.atoms = atoms;
+        }
+
+        @Override
+        public String toString() {
+            return condition;
+        }
+    }
+
+    /**
+     * Splits a statement into its query blocks and finds the tables, the joins
+     * and the selections of every block. Equalities of a {@code JOIN ... ON}
+     * belong to the block of the join, like those of the {@code WHERE} clause,
+     * and a {@code JOIN ... USING} equates the columns it names. Any other
+     * condition is a filter of the atoms it refers to. An equality with a
+     * column of an enclosing block, i.e. a correlated predicate, only holds
+     * for each row of that block and is a selection with that column. The
+     * conditions of an outer join are taken as they are, and the block is
+     * marked, as it is not a join of its atoms.
+     */
     static class JoinFinder extends QueryVisitorUnsupportedAdapter {
-        LinkedList<Equality> myJoins;
+        List<QueryBlocks.Block> myBlocks;
+        /** Blocks of the body of every CTE in scope, by name of the CTE. */
+        HashMap<String, List<String>> myCtes;
+        ArrayDeque<QueryBlocks.Block> myCurrent;
+        QueryBlocks.Names myNames;
+        /** Atoms of every block referred to from its nested blocks. */
+        IdentityHashMap<QueryBlocks.Block, Set<String>> myReferenced;
+        /** Whether a subselect being visited is an item of a FROM clause. */
+        boolean inFrom;
 
-        public List<Equality> getJoinList(Statement stmt) {
-            myJoins = new LinkedList<>();
+        /**
+         * Returns the blocks of a statement in the order they occur in it.
+         */
+        public List<QueryBlocks.Block> getBlocks(Statement stmt) {
+            myBlocks = new ArrayList<>();
+            myCtes = new HashMap<>();
+            myCurrent = new ArrayDeque<>();
+            myNames = new QueryBlocks.Names();
+            myNames.unique(QueryBlocks.MAIN);
+            myReferenced = new IdentityHashMap<>();
+            inFrom = false;
             stmt.accept(this);
-            return myJoins;
+            return myBlocks;
         }
 
         @Override
         public void visit(Select select) {
-            if (select.getWithItemsList() != null) {
-                for (WithItem withItem : select.getWithItemsList()) {
-                    withItem.accept(this);
+            withItems(select.getWithItemsList());
+            block(QueryBlocks.MAIN, select.getSelectBody());
+        }
+
+        private void withItems(List<WithItem> withItems) {
+            if (withItems == null) {
+                return;
+            }
+            for (WithItem withItem : withItems) {
+                if (withItem.getSubSelect() == null) {
+                    // WITH t AS (VALUES ...) is a list of literals
+                    myCtes.put(withItem.getName(), Collections.emptyList());
+                    continue;
                 }
+                String name = myNames.unique(withItem.getName());
+                // a recursive CTE refers to itself
+                myCtes.put(withItem.getName(), Collections.singletonList(name));
+                myCtes.put(withItem.getName(), block(name, withItem.getSubSelect().getSelectBody()));
             }
-            select.getSelectBody().accept(this);
         }
 
-        @Override
-        public void visit(PlainSelect plainSelect) {
-            if (plainSelect.getSelectItems() != null) {
-                for (SelectItem item : plainSelect.getSelectItems()) {
-                    item.accept(this);
+        /**
+         * Visits the body of a block. Every branch of a set operation is a
+         * block of its own.
+         *
+         * @return the names of the blocks
+         */
+        private List<String> block(String name, SelectBody body) {
+            if (body instanceof SetOperationList) {
+                List<SelectBody> selects = ((SetOperationList) body).getSelects();
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < selects.size(); i++) {
+                    names.addAll(block(myNames.unique(name + "_u" + i), selects.get(i)));
                 }
+                return names;
             }
+            QueryBlocks.Block block = new QueryBlocks.Block(name, myCurrent.peek());
+            myBlocks.add(block);
+            myCurrent.push(block);
+            myReferenced.put(block, new HashSet<>());
+            boolean wasInFrom = inFrom;
+            inFrom = false;
+            try {
+                body.accept(this);
+            } finally {
+                inFrom = wasInFrom;
+                myCurrent.pop();
+            }
+            return Collections.singletonList(name);
+        }
 
+        @Override
+        public void visit(PlainSelect plainSelect) {
             if (plainSelect.getFromItem() != null) {
-                plainSelect.getFromItem().accept(this);
+                joins(plainSelect.getFromItem(), plainSelect.getJoins());
             }
 
-            if (plainSelect.getJoins() != null) {
-                for (Join join : plainSelect.getJoins()) {
-                    join.getRightItem().accept(this);
+            if (plainSelect.getSelectItems() != null) {
+                for (SelectItem item : plainSelect.getSelectItems()) {
+                    item.accept(this);
                 }
             }
+            myCurrent.peek().distinct = isSet(plainSelect);
+
             if (plainSelect.getWhere() != null) {
-                plainSelect.getWhere().accept(this);
+                condition(plainSelect.getWhere());
             }
 
             if (plainSelect.getHaving() != null) {
-                plainSelect.getHaving().accept(this);
+                // a condition on the groups, not on the rows of the join
+                subqueries(plainSelect.getHaving());
             }
 
             if (plainSelect.getOracleHierarchical() != null) {
@@ -162,35 +639,360 @@ public final class App {
             }
         }
 
+        /**
+         * Visits a FROM item.
+         *
+         * @return the atoms it adds to the block
+         */
+        private List<String> fromItem(FromItem item) {
+            QueryBlocks.Block block = myCurrent.peek();
+            int before = block.tables.size();
+            inFrom = true;
+            try {
+                item.accept(this);
+            } finally {
+                inFrom = false;
+            }
+            return new ArrayList<>(block.tables.keySet()).subList(before, block.tables.size());
+        }
+
+        /**
+         * Visits a FROM item and the items joined to it. The left input of a
+         * {@code JOIN} is everything joined since the last comma.
+         */
+        private void joins(FromItem first, List<Join> joins) {
+            List<String> left = fromItem(first);
+            if (joins == null) {
+                return;
+            }
+            for (Join join : joins) {
+                List<String> right = join(join, left);
+                if (join.isSimple()) {
+                    left = right;
+                } else {
+                    left = new ArrayList<>(left);
+                    left.addAll(right);
+                }
+            }
+        }
+
+        /**
+         * Visits a join with the atoms of its left input.
+         *
+         * @return the atoms of its right input
+         */
+        private List<String> join(Join join, List<String> left) {
+            List<String> right = fromItem(join.getRightItem());
+            if (join.isNatural()) {
+                throw new UnsupportedOperationException("NATURAL JOIN needs the columns of the tables");
+            }
+            if (join.isLeft() || join.isRight() || join.isFull() || join.isOuter()) {
+                myCurrent.peek().outerJoin = true;
+            }
+            if (join.getUsingColumns() != null) {
+                for (Column col : join.getUsingColumns()) {
+                    String name = col.getColumnName();
+                    myCurrent.peek().joins.add(new Equality(usingAtom(left, name), name, usingAtom(right, name), name));
+                }
+            }
+            if (join.getOnExpressions() != null) {
+                for (Expression on : join.getOnExpressions()) {
+                    condition(on);
+                }
+            }
+            return right;
+        }
+
+        /**
+         * Returns the atom of a join input a {@code USING} column belongs to.
+         * Without the schema, it is the only atom of the input, or the last
+         * one already joined on a column of that name, or else the last one.
+         */
+        private String usingAtom(List<String> input, String col) {
+            List<Equality> joins = myCurrent.peek().joins;
+            for (int i = input.size() - 1; i >= 0; i--) {
+                String atom = input.get(i);
+                for (Equality eq : joins) {
+                    if (eq.leftTable.equals(atom) && eq.leftCol.equals(col)
+                            || eq.rightTable.equals(atom) && eq.rightCol.equals(col)) {
+                        return atom;
+                    }
+                }
+            }
+            return input.get(input.size() - 1);
+        }
+
+        /**
+         * Returns whether a select is a set of rows of its output columns:
+         * {@code DISTINCT} columns without grouping or a limit, whose result
+         * does not depend on how often a row occurs in the join.
+         */
+        private static boolean isSet(PlainSelect plainSelect) {
+            if (plainSelect.getDistinct() == null || plainSelect.getDistinct().getOnSelectItems() != null
+                    || plainSelect.getGroupBy() != null || plainSelect.getHaving() != null
+                    || plainSelect.getLimit() != null || plainSelect.getTop() != null
+                    || plainSelect.getFetch() != null || plainSelect.getOffset() != null) {
+                return false;
+            }
+            for (SelectItem item : plainSelect.getSelectItems()) {
+                if (item instanceof SelectExpressionItem
+                        && !(((SelectExpressionItem) item).getExpression() instanceof Column)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         @Override
         public void visit(AllColumns allColumns) {
-            // nothing to do for * in SELECT
+            for (String atom : myCurrent.peek().tables.keySet()) {
+                output(atom, HypergraphBuilder.ALL_COLUMNS);
+            }
         }
 
         @Override
-        public void visit(Table tableName) {
-            // nothing to do for table in FROM
+        public void visit(AllTableColumns allTableColumns) {
+            String atom = allTableColumns.getTable().getFullyQualifiedName();
+            if (myCurrent.peek().tables.containsKey(atom)) {
+                output(atom, HypergraphBuilder.ALL_COLUMNS);
+            }
+        }
+
+        @Override
+        public void visit(SelectExpressionItem selectExpressionItem) {
+            // a projection does not change the hypergraph, but a subquery is
+            // a block
+            Expression expr = selectExpressionItem.getExpression();
+            if (!(expr instanceof Column)) {
+                subqueries(expr);
+            } else if (((Column) expr).getTable() == null && myCurrent.peek().tables.size() != 1) {
+                // without the schema, any table may have the column
+                visit(new AllColumns());
+            } else {
+                String atom = atom((Column) expr);
+                if (atom != null) {
+                    output(atom, ((Column) expr).getColumnName());
+                }
+            }
+        }
+
+        private void output(String atom, String col) {
+            myCurrent.peek().outputs.computeIfAbsent(atom, k -> new LinkedHashSet<>()).add(col);
         }
 
         @Override
-        public void visit(AndExpression andExpression) {
-            visitBinaryExpression(andExpression);
+        public void visit(Table tableName) {
+            String name = tableName.getFullyQualifiedName();
+            String atom = tableName.getAlias() != null ? tableName.getAlias().getName() : name;
+            List<String> cte = myCtes.get(name);
+            if (cte != null) {
+                myCurrent.peek().dependencies.addAll(cte);
+                myCurrent.peek().blockAtoms.add(atom);
+            }
+            myCurrent.peek().tables.put(atom, name);
         }
 
-        public void visitBinaryExpression(BinaryExpression binaryExpression) {
-            binaryExpression.getLeftExpression().accept(this);
-            binaryExpression.getRightExpression().accept(this);
+        @Override
+        public void visit(SubSelect subSelect) {
+            boolean derived = inFrom;
+            // the CTEs of a subquery are only visible in it
+            HashMap<String, List<String>> outerCtes = myCtes;
+            myCtes = new HashMap<>(myCtes);
+            try {
+                withItems(subSelect.getWithItemsList());
+                QueryBlocks.Block outer = myCurrent.peek();
+                if (derived) {
+                    String alias = subSelect.getAlias() != null ? subSelect.getAlias().getName() : null;
+                    String name = myNames.unique(alias != null ? alias : "derived");
+                    outer.dependencies.addAll(block(name, subSelect.getSelectBody()));
+                    String atom = alias != null ? alias : name;
+                    outer.tables.put(atom, atom);
+                    outer.blockAtoms.add(atom);
+                } else {
+                    outer.dependencies.addAll(block(myNames.unique("subquery"), subSelect.getSelectBody()));
+                }
+            } finally {
+                myCtes = outerCtes;
+            }
         }
 
         @Override
-        public void visit(EqualsTo equalsTo) {
+        public void visit(SubJoin subjoin) {
+            joins(subjoin.getLeft(), subjoin.getJoinList());
+        }
+
+        /**
+         * Splits a condition into its conjuncts, each a join, a selection or
+         * a filter.
+         */
+        private void condition(Expression expr) {
+            if (expr instanceof AndExpression) {
+                condition(((AndExpression) expr).getLeftExpression());
+                condition(((AndExpression) expr).getRightExpression());
+            } else if (expr instanceof Parenthesis && (((Parenthesis) expr).getExpression() instanceof AndExpression
+                    || ((Parenthesis) expr).getExpression() instanceof EqualsTo)) {
+                condition(((Parenthesis) expr).getExpression());
+            } else if (!(expr instanceof EqualsTo) || !equality((EqualsTo) expr)) {
+                filter(expr);
+            }
+        }
+
+        /**
+         * Records an equality of two columns as a join, and one of a column
+         * with a literal or a column of an enclosing block as a selection.
+         *
+         * @return whether the equality is one of those
+         */
+        private boolean equality(EqualsTo equalsTo) {
             Expression left = equalsTo.getLeftExpression();
             Expression right = equalsTo.getRightExpression();
             if (left instanceof Column && right instanceof Column) {
-                myJoins.add(new Equality((Column) left, (Column) right));
-            } else {
-                super.visit(equalsTo);
+                String leftTable = atom((Column) left);
+                String rightTable = atom((Column) right);
+                if (leftTable != null && rightTable != null) {
+                    myCurrent.peek().joins.add(new Equality(leftTable, ((Column) left).getColumnName(),
+                            rightTable, ((Column) right).getColumnName()));
+                } else if (leftTable != null || rightTable != null) {
+                    Column col = (Column) (leftTable != null ? left : right);
+                    Column outer = (Column) (leftTable != null ? right : left);
+                    myCurrent.peek().selections.add(new Selection(leftTable != null ? leftTable : rightTable,
+                            col.getColumnName(), outer.getFullyQualifiedName()));
+                } else {
+                    return false;
+                }
+                return true;
+            }
+            if (left instanceof Column && isLiteral(right) || isLiteral(left) && right instanceof Column) {
+                // a selection does not change the hypergraph
+                Column col = (Column) (left instanceof Column ? left : right);
+                String table = atom(col);
+                if (table != null) {
+                    myCurrent.peek().selections.add(new Selection(table, col.getColumnName(),
+                            literal(left instanceof Column ? right : left)));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Records a condition as a filter of the atoms it refers to. Its
+         * subqueries are blocks, and the atoms they refer to are those of the
+         * filter too.
+         */
+        private void filter(Expression expr) {
+            QueryBlocks.Block block = myCurrent.peek();
+            Set<String> referenced = myReferenced.get(block);
+            referenced.clear();
+            ConditionScan scan = subqueries(expr);
+            Set<String> atoms = new HashSet<>(referenced);
+            boolean ambiguous = false;
+            for (Column col : scan.columns) {
+                if (col.getTable() != null && col.getTable().getName() != null || block.tables.size() == 1) {
+                    String atom = atom(col);
+                    if (atom != null) {
+                        atoms.add(atom);
+                    }
+                } else if (!"true".equalsIgnoreCase(col.getColumnName())
+                        && !"false".equalsIgnoreCase(col.getColumnName())) {
+                    ambiguous = true;
+                }
+            }
+            // AND binds stronger than OR, and the conditions are joined by AND
+            String condition = expr instanceof OrExpression ? "(" + expr + ")" : expr.toString();
+            block.filters.add(new Filter(condition, ambiguous ? null : atoms));
+        }
+
+        /**
+         * Visits the subqueries of an expression, each a block.
+         *
+         * @return the columns and the subqueries of the expression
+         */
+        private ConditionScan subqueries(Expression expr) {
+            ConditionScan scan = new ConditionScan();
+            expr.accept(scan);
+            boolean wasInFrom = inFrom;
+            inFrom = false;
+            try {
+                for (SubSelect subSelect : scan.subSelects) {
+                    visit(subSelect);
+                }
+            } finally {
+                inFrom = wasInFrom;
+            }
+            return scan;
+        }
+
+        /**
+         * Returns the atom of the current block a column belongs to, or
+         * {@code null} if the column belongs to an enclosing block, which
+         * makes the block correlated. An unqualified column belongs to the
+         * only table of the block.
+         */
+        private String atom(Column col) {
+            QueryBlocks.Block block = myCurrent.peek();
+            if (col.getTable() == null || col.getTable().getName() == null) {
+                if (block.tables.size() != 1) {
+                    throw new IllegalArgumentException("ambiguous column: " + col);
+                }
+                return block.tables.keySet().iterator().next();
             }
+            String table = col.getTable().getFullyQualifiedName();
+            if (block.tables.containsKey(table)) {
+                return table;
+            }
+            for (QueryBlocks.Block outer = block.getParent(); outer != null; outer = outer.getParent()) {
+                if (outer.tables.containsKey(table)) {
+                    block.correlated = true;
+                    myReferenced.get(outer).add(table);
+                    return null;
+                }
+            }
+            // an unknown table is reported when the hypergraph is built
+            return table;
+        }
+
+        /**
+         * Returns the text of a literal. A positional parameter is numbered
+         * {@code ?<n>}, n counting the parameters of the statement from 1, as
+         * each may have a different value.
+         */
+        private static String literal(Expression expr) {
+            if (expr instanceof JdbcParameter) {
+                ((JdbcParameter) expr).setUseFixedIndex(true);
+            }
+            return expr.toString();
+        }
+
+        private static boolean isLiteral(Expression expr) {
+            return expr instanceof LongValue || expr instanceof DoubleValue || expr instanceof StringValue
+                    || expr instanceof DateValue || expr instanceof TimeValue || expr instanceof TimestampValue
+                    || expr instanceof DateTimeLiteralExpression || expr instanceof JdbcParameter || expr instanceof JdbcNamedParameter;
+        }
+    }
+
+    /**
+     * Collects the columns of an expression outside its subqueries, and its
+     * subqueries. Positional parameters are numbered, so that the expression
+     * reads as written with {@code ?<n>} like the selections.
+     */
+    static final class ConditionScan extends ExpressionVisitorAdapter {
+        final List<Column> columns = new ArrayList<>();
+        final List<SubSelect> subSelects = new ArrayList<>();
+
+        @Override
+        public void visit(Column column) {
+            columns.add(column);
+        }
+
+        @Override
+        public void visit(SubSelect subSelect) {
+            subSelects.add(subSelect);
+        }
+
+        @Override
+        public void visit(JdbcParameter parameter) {
+            parameter.setUseFixedIndex(true);
         }
     }
-}
\ No newline at end of file
+}
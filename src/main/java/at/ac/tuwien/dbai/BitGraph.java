@@ -0,0 +1,83 @@
+package at.ac.tuwien.dbai;
+
+import java.util.BitSet;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+
+/**
+ * Simple undirected graph stored as a bitset adjacency matrix. Row {@code i} of
+ * the matrix is the neighbourhood of vertex {@code i}.
+ *
+ * <p>
+ * The rows returned by {@link #neighbours(int)} and {@link #adjacency()} are
+ * the internal ones and must not be modified.
+ */
+public class BitGraph {
+
+    private final String[] names;
+    private final BitSet[] adjacency;
+
+    public BitGraph(String[] names, BitSet[] adjacency) {
+        if (names.length != adjacency.length) {
+            throw new IllegalArgumentException("expected " + names.length + " rows, got " + adjacency.length);
+        }
+        this.names = names;
+        this.adjacency = adjacency;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int v) {
+        return names[v];
+    }
+
+    public BitSet neighbours(int v) {
+        return adjacency[v];
+    }
+
+    public int degree(int v) {
+        return adjacency[v].cardinality();
+    }
+
+    public boolean isAdjacent(int u, int v) {
+        return adjacency[u].get(v);
+    }
+
+    public BitSet[] adjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Returns a fresh copy of the adjacency matrix, e.g. for algorithms that add
+     * fill edges.
+     */
+    public BitSet[] copyAdjacency() {
+        BitSet[] copy = new BitSet[adjacency.length];
+        for (int v = 0; v < copy.length; v++) {
+            copy[v] = (BitSet) adjacency[v].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the graph into a jgrapht {@link Graph} whose vertices are the vertex
+     * names, so that the jgrapht algorithms can be run on it.
+     */
+    public Graph<String, DefaultEdge> asGraph() {
+        Graph<String, DefaultEdge> g = new SimpleGraph<>(DefaultEdge.class);
+        for (String name : names) {
+            g.addVertex(name);
+        }
+        for (int u = 0; u < adjacency.length; u++) {
+            for (int v = adjacency[u].nextSetBit(u + 1); v >= 0; v = adjacency[u].nextSetBit(v + 1)) {
+                g.addEdge(names[u], names[v]);
+            }
+        }
+        return g;
+    }
+
+}
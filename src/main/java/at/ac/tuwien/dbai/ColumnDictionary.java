@@ -0,0 +1,85 @@
+package at.ac.tuwien.dbai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dictionary shared by all the conversions of a run. It assigns every qualified
+ * column {@code table.column} a stable id, so that the same column gets the
+ * same variable in the hypergraphs of all the queries. Aliases and variable
+ * names are local to a query and are not kept, so the dictionary only grows
+ * with the columns of the schema.
+ *
+ * <p>
+ * The dictionary is safe for concurrent use and can be saved and loaded again
+ * to keep the ids stable across runs.
+ */
+public final class ColumnDictionary {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Returns the id of a qualified column, assigning the next free one if the
+     * column is new.
+     */
+    public int id(String qualifiedColumn) {
+        Integer id = ids.get(qualifiedColumn);
+        return id != null ? id : ids.computeIfAbsent(qualifiedColumn, k -> nextId.getAndIncrement());
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Loads a dictionary saved by {@link #save(Path)}.
+     */
+    public static ColumnDictionary load(Path file) throws IOException {
+        ColumnDictionary dict = new ColumnDictionary();
+        int max = -1;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int lineNo = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lineNo++;
+                int eq = line.lastIndexOf('=');
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    int id = Integer.parseInt(line.substring(eq + 1));
+                    dict.ids.put(line.substring(0, eq), id);
+                    max = Math.max(max, id);
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    throw new IOException(file + ":" + lineNo + ": expected table.column=id");
+                }
+            }
+        }
+        dict.nextId.set(max + 1);
+        return dict;
+    }
+
+    /**
+     * Saves the dictionary as {@code table.column=id} lines ordered by id.
+     */
+    public void save(Path file) throws IOException {
+        TreeMap<Integer, String> byId = new TreeMap<>();
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            byId.put(entry.getValue(), entry.getKey());
+        }
+        ArrayList<String> lines = new ArrayList<>(byId.size());
+        for (Map.Entry<Integer, String> entry : byId.entrySet()) {
+            lines.add(entry.getValue() + "=" + entry.getKey());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+}
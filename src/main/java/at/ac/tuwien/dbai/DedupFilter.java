@@ -0,0 +1,82 @@
+package at.ac.tuwien.dbai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory filter of already seen query fingerprints. An LRU map keeps
+ * the results of the most recently used {@code capacity} templates by their
+ * hash, together with their check hash, which must match as well for a
+ * result to be reused.
+ *
+ * <p>
+ * A template whose result was evicted from the LRU map is simply converted
+ * again, so evictions do not affect the output.
+ *
+ * @param <V> type of the cached results
+ */
+public class DedupFilter<V> {
+
+    /**
+     * A cached result with the check hash of its template.
+     */
+    private static final class Entry<V> {
+        final long check;
+        final V result;
+
+        Entry(long check, V result) {
+            this.check = check;
+            this.result = result;
+        }
+    }
+
+    private final LinkedHashMap<Long, Entry<V>> lru;
+    private long hits;
+    private long misses;
+
+    public DedupFilter(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        lru = new LinkedHashMap<Long, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the result cached for the fingerprint, or {@code null} if the
+     * template has to be converted.
+     */
+    public V get(QueryFingerprint fingerprint) {
+        Entry<V> entry = lru.get(fingerprint.getHash());
+        V result = entry != null && entry.check == fingerprint.getCheck() ? entry.result : null;
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Caches the result of a template, replacing that of another template
+     * with the same hash.
+     */
+    public void put(QueryFingerprint fingerprint, V result) {
+        lru.put(fingerprint.getHash(), new Entry<>(fingerprint.getCheck(), result));
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+}
@@ -0,0 +1,205 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Greedy elimination ordering of the vertices of a graph, typically the primal
+ * graph of a query hypergraph. Eliminating a vertex turns its neighbourhood
+ * into a clique; the width of the ordering, the largest neighbourhood of a
+ * vertex when it is eliminated, is an upper bound on the treewidth.
+ *
+ * <p>
+ * The graph is kept as a bitset adjacency matrix, so adding the fill edges of
+ * an elimination and counting the fill of a vertex are word-parallel. Only the
+ * fill of the vertices within distance two of an eliminated vertex can change,
+ * so only those are recomputed.
+ */
+public final class EliminationOrdering {
+
+    /**
+     * Rule choosing the next vertex to eliminate. Ties are broken by the
+     * smallest vertex index, so orderings are deterministic.
+     */
+    public enum Heuristic {
+        /** Vertex with the fewest neighbours. */
+        MIN_DEGREE("min-degree"),
+        /** Vertex whose elimination adds the fewest fill edges. */
+        MIN_FILL("min-fill"),
+        /**
+         * Vertex with the fewest fill edges among those whose degree does not
+         * exceed the width reached so far, or with the fewest neighbours if
+         * there are none, so that the width only grows when it has to.
+         */
+        BOUNDED_FILL("bounded-fill");
+
+        private final String name;
+
+        Heuristic(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final Heuristic heuristic;
+    private final int[] order;
+    private final int width;
+
+    private EliminationOrdering(Heuristic heuristic, int[] order, int width) {
+        this.heuristic = heuristic;
+        this.order = order;
+        this.width = width;
+    }
+
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Returns the vertex indices in the order they are eliminated.
+     */
+    public int[] getOrder() {
+        return order.clone();
+    }
+
+    /**
+     * Returns the width of the ordering, an upper bound on the treewidth.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    public static EliminationOrdering compute(BitGraph g, Heuristic heuristic) {
+        int n = g.size();
+        BitSet[] adj = g.copyAdjacency();
+        BitSet alive = new BitSet(n);
+        alive.set(0, n);
+        int[] degree = new int[n];
+        for (int v = 0; v < n; v++) {
+            degree[v] = adj[v].cardinality();
+        }
+        boolean needsFill = heuristic != Heuristic.MIN_DEGREE;
+        int[] fill = new int[n];
+        BitSet scratch = new BitSet(n);
+        if (needsFill) {
+            for (int v = 0; v < n; v++) {
+                fill[v] = fill(adj, v, scratch);
+            }
+        }
+
+        int[] order = new int[n];
+        int width = 0;
+        BitSet dirty = new BitSet(n);
+        for (int i = 0; i < n; i++) {
+            int v = select(heuristic, alive, degree, fill, width);
+            order[i] = v;
+            width = Math.max(width, degree[v]);
+            alive.clear(v);
+
+            BitSet nb = adj[v];
+            dirty.clear();
+            for (int u = nb.nextSetBit(0); u >= 0; u = nb.nextSetBit(u + 1)) {
+                adj[u].or(nb);
+                adj[u].clear(u);
+                adj[u].clear(v);
+                degree[u] = adj[u].cardinality();
+                if (needsFill) {
+                    dirty.or(adj[u]);
+                }
+            }
+            if (needsFill) {
+                dirty.or(nb);
+                dirty.and(alive);
+                for (int w = dirty.nextSetBit(0); w >= 0; w = dirty.nextSetBit(w + 1)) {
+                    fill[w] = fill(adj, w, scratch);
+                }
+            }
+            adj[v] = new BitSet(0);
+        }
+        return new EliminationOrdering(heuristic, order, width);
+    }
+
+    private static int select(Heuristic heuristic, BitSet alive, int[] degree, int[] fill, int width) {
+        int best = -1;
+        boolean bestBounded = false;
+        for (int v = alive.nextSetBit(0); v >= 0; v = alive.nextSetBit(v + 1)) {
+            if (best < 0) {
+                best = v;
+                bestBounded = degree[v] <= width;
+                continue;
+            }
+            switch (heuristic) {
+            case MIN_DEGREE:
+                if (degree[v] < degree[best]) {
+                    best = v;
+                }
+                break;
+            case MIN_FILL:
+                if (fill[v] < fill[best] || fill[v] == fill[best] && degree[v] < degree[best]) {
+                    best = v;
+                }
+                break;
+            default:
+                boolean bounded = degree[v] <= width;
+                if (bounded && !bestBounded
+                        || bounded && (fill[v] < fill[best] || fill[v] == fill[best] && degree[v] < degree[best])
+                        || !bounded && !bestBounded && degree[v] < degree[best]) {
+                    best = v;
+                    bestBounded = bounded;
+                }
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Counts the missing edges between the neighbours of a vertex.
+     */
+    private static int fill(BitSet[] adj, int v, BitSet scratch) {
+        BitSet nb = adj[v];
+        int missing = 0;
+        for (int u = nb.nextSetBit(0); u >= 0; u = nb.nextSetBit(u + 1)) {
+            scratch.clear();
+            scratch.or(nb);
+            scratch.andNot(adj[u]);
+            scratch.clear(u);
+            missing += scratch.cardinality();
+        }
+        return missing / 2;
+    }
+
+    /**
+     * Computes the orderings of all the heuristics on the primal graph of a
+     * hypergraph, one line {@code <heuristic> width=<w> order=<v>,...} each,
+     * followed by the smallest width found.
+     */
+    public static List<String> report(Hypergraph h) {
+        BitGraph primal = h.primalGraph();
+        ArrayList<String> lines = new ArrayList<>();
+        EliminationOrdering best = null;
+        for (Heuristic heuristic : Heuristic.values()) {
+            EliminationOrdering ordering = compute(primal, heuristic);
+            StringBuilder sb = new StringBuilder(100);
+            sb.append(heuristic).append(" width=").append(ordering.width).append(" order=");
+            for (int i = 0; i < ordering.order.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(primal.name(ordering.order[i]));
+            }
+            lines.add(sb.toString());
+            if (best == null || ordering.width < best.width) {
+                best = ordering;
+            }
+        }
+        lines.add("treewidth<=" + best.width + " (" + best.heuristic + ")");
+        return lines;
+    }
+
+}
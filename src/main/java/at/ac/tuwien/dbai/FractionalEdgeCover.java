@@ -0,0 +1,209 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Minimum weight fractional edge cover of a hypergraph: weights {@code x_e >= 0}
+ * such that the edges containing each vertex sum up to at least 1, minimising
+ * {@code sum c_e * x_e}.
+ *
+ * <p>
+ * The linear program is solved through its dual, the fractional vertex packing
+ * {@code max sum y_v} subject to {@code sum_{v in e} y_v <= c_e}, whose origin
+ * is feasible, with a dense simplex using Bland's rule. The edge weights are
+ * read off the final tableau as the dual values of the packing constraints.
+ */
+public final class FractionalEdgeCover {
+
+    private static final double EPS = 1e-9;
+
+    private final double[] weights;
+    private final double value;
+
+    private FractionalEdgeCover(double[] weights, double value) {
+        this.weights = weights;
+        this.value = value;
+    }
+
+    /**
+     * Computes the fractional edge cover number: every edge costs 1.
+     */
+    public static FractionalEdgeCover compute(Hypergraph h) {
+        double[] costs = new double[h.edgeCount()];
+        Arrays.fill(costs, 1);
+        return compute(h, costs);
+    }
+
+    /**
+     * Computes a minimum cost fractional edge cover.
+     *
+     * @param costs non-negative cost of every edge
+     */
+    public static FractionalEdgeCover compute(Hypergraph h, double[] costs) {
+        int m = h.edgeCount();
+        int n = h.vertexCount();
+        int cols = n + m + 1;
+        double[][] t = new double[m + 1][cols];
+        int[] basis = new int[m];
+        for (int e = 0; e < m; e++) {
+            if (costs[e] < 0) {
+                throw new IllegalArgumentException("negative cost of edge " + h.edgeName(e));
+            }
+            BitSet edge = h.edge(e);
+            for (int v = edge.nextSetBit(0); v >= 0; v = edge.nextSetBit(v + 1)) {
+                t[e][v] = 1;
+            }
+            t[e][n + e] = 1;
+            t[e][cols - 1] = costs[e];
+            basis[e] = n + e;
+        }
+        for (int v = 0; v < n; v++) {
+            t[m][v] = -1;
+        }
+        solve(t, basis);
+
+        double[] weights = new double[m];
+        for (int e = 0; e < m; e++) {
+            weights[e] = Math.max(0, t[m][n + e]);
+        }
+        return new FractionalEdgeCover(weights, t[m][cols - 1]);
+    }
+
+    private static void solve(double[][] t, int[] basis) {
+        int m = basis.length;
+        int last = t[0].length - 1;
+        while (true) {
+            int enter = -1;
+            for (int j = 0; j < last; j++) {
+                if (t[m][j] < -EPS) {
+                    enter = j;
+                    break;
+                }
+            }
+            if (enter < 0) {
+                return;
+            }
+            int leave = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < m; i++) {
+                if (t[i][enter] > EPS) {
+                    double ratio = t[i][last] / t[i][enter];
+                    if (ratio < best - EPS || ratio <= best + EPS && leave >= 0 && basis[i] < basis[leave]) {
+                        best = ratio;
+                        leave = i;
+                    }
+                }
+            }
+            if (leave < 0) {
+                // cannot happen: every vertex is in some edge with a finite cost
+                throw new IllegalStateException("unbounded vertex packing");
+            }
+            pivot(t, leave, enter);
+            basis[leave] = enter;
+        }
+    }
+
+    private static void pivot(double[][] t, int row, int col) {
+        double[] p = t[row];
+        double inv = 1 / p[col];
+        for (int j = 0; j < p.length; j++) {
+            p[j] *= inv;
+        }
+        for (int i = 0; i < t.length; i++) {
+            double f = t[i][col];
+            if (i != row && f != 0) {
+                double[] r = t[i];
+                for (int j = 0; j < r.length; j++) {
+                    r[j] -= f * p[j];
+                }
+            }
+        }
+    }
+
+    public double getWeight(int e) {
+        return weights[e];
+    }
+
+    /**
+     * Returns the cost of the cover, {@code sum c_e * x_e}.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the fractional edge cover number of the hypergraph together with
+     * its AGM bound, the worst-case output size of the join of its tables, if
+     * the statistics know the size of every table.
+     *
+     * <p>
+     * Tables whose edge has no vertices are in a cross product with the rest of
+     * the query, so they are covered with weight 1 and contribute their full
+     * size to the bound.
+     *
+     * @param builder the builder the edges of the hypergraph are atoms of, which
+     *        knows their tables
+     */
+    public static List<String> agmReport(Hypergraph h, HypergraphBuilder builder, TableStatistics stats) {
+        FractionalEdgeCover rho = compute(h);
+        FractionalEdgeCover cover = rho;
+        double rhoValue = rho.getValue();
+        for (int e = 0; e < h.edgeCount(); e++) {
+            if (h.edge(e).isEmpty()) {
+                rhoValue += 1;
+            }
+        }
+        ArrayList<String> out = new ArrayList<>();
+        out.add(String.format(Locale.ROOT, "rho*=%.6g", rhoValue));
+
+        double[] costs = stats != null ? logSizes(h, builder, stats) : null;
+        if (costs != null) {
+            cover = compute(h, costs);
+            double log2 = cover.getValue();
+            for (int e = 0; e < h.edgeCount(); e++) {
+                if (h.edge(e).isEmpty()) {
+                    log2 += costs[e];
+                }
+            }
+            out.add(String.format(Locale.ROOT, "agm=%.6g", Math.pow(2, log2)));
+            out.add(String.format(Locale.ROOT, "log2agm=%.6g", log2));
+        } else if (stats != null) {
+            out.add(hasEmptyTable(h, builder, stats) ? "agm=0" : "agm=unknown");
+        }
+        for (int e = 0; e < h.edgeCount(); e++) {
+            double x = h.edge(e).isEmpty() ? 1 : cover.getWeight(e);
+            out.add(String.format(Locale.ROOT, "cover %s=%.6g", h.edgeName(e), x));
+        }
+        return out;
+    }
+
+    /**
+     * Returns the base 2 logarithm of the size of every table, or {@code null}
+     * if a size is unknown or zero.
+     */
+    private static double[] logSizes(Hypergraph h, HypergraphBuilder builder, TableStatistics stats) {
+        double[] costs = new double[h.edgeCount()];
+        for (int e = 0; e < costs.length; e++) {
+            long rows = stats.getRows(builder.getRelation(h.edgeName(e)));
+            if (rows <= 0) {
+                return null;
+            }
+            costs[e] = Math.log(rows) / Math.log(2);
+        }
+        return costs;
+    }
+
+    private static boolean hasEmptyTable(Hypergraph h, HypergraphBuilder builder, TableStatistics stats) {
+        for (int e = 0; e < h.edgeCount(); e++) {
+            if (stats.getRows(builder.getRelation(h.edgeName(e))) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,159 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Indexed snapshot of a hypergraph. Edges and vertices are numbered from 0 and
+ * every edge is stored as a bitset over the vertex indices.
+ *
+ * <p>
+ * The bitsets returned by {@link #edge(int)} and {@link #incidence()} are the
+ * internal ones and must not be modified.
+ */
+public class Hypergraph {
+
+    private final String[] edgeNames;
+    private final String[] vertexNames;
+    private final BitSet[] edges;
+    private BitSet[] incidence;
+
+    public Hypergraph(String[] edgeNames, String[] vertexNames, BitSet[] edges) {
+        if (edgeNames.length != edges.length) {
+            throw new IllegalArgumentException("expected " + edgeNames.length + " edges, got " + edges.length);
+        }
+        this.edgeNames = edgeNames;
+        this.vertexNames = vertexNames;
+        this.edges = edges;
+    }
+
+    public int edgeCount() {
+        return edges.length;
+    }
+
+    public int vertexCount() {
+        return vertexNames.length;
+    }
+
+    public String edgeName(int e) {
+        return edgeNames[e];
+    }
+
+    public String vertexName(int v) {
+        return vertexNames[v];
+    }
+
+    public BitSet edge(int e) {
+        return edges[e];
+    }
+
+    /**
+     * Returns, for every vertex, the set of edges it occurs in.
+     */
+    public BitSet[] incidence() {
+        if (incidence == null) {
+            BitSet[] inc = new BitSet[vertexNames.length];
+            for (int v = 0; v < inc.length; v++) {
+                inc[v] = new BitSet(edges.length);
+            }
+            for (int e = 0; e < edges.length; e++) {
+                for (int v = edges[e].nextSetBit(0); v >= 0; v = edges[e].nextSetBit(v + 1)) {
+                    inc[v].set(e);
+                }
+            }
+            incidence = inc;
+        }
+        return incidence;
+    }
+
+    /**
+     * Builds the primal graph: vertices are adjacent iff they share an edge.
+     */
+    public BitGraph primalGraph() {
+        BitSet[] adj = new BitSet[vertexNames.length];
+        for (int v = 0; v < adj.length; v++) {
+            adj[v] = new BitSet(vertexNames.length);
+        }
+        for (BitSet edge : edges) {
+            for (int v = edge.nextSetBit(0); v >= 0; v = edge.nextSetBit(v + 1)) {
+                adj[v].or(edge);
+            }
+        }
+        for (int v = 0; v < adj.length; v++) {
+            adj[v].clear(v);
+        }
+        return new BitGraph(vertexNames, adj);
+    }
+
+    /**
+     * Builds the dual graph: edges are adjacent iff they intersect.
+     */
+    public BitGraph dualGraph() {
+        BitSet[] inc = incidence();
+        BitSet[] adj = new BitSet[edges.length];
+        for (int e = 0; e < adj.length; e++) {
+            adj[e] = new BitSet(edges.length);
+        }
+        for (BitSet edgesOfVertex : inc) {
+            for (int e = edgesOfVertex.nextSetBit(0); e >= 0; e = edgesOfVertex.nextSetBit(e + 1)) {
+                adj[e].or(edgesOfVertex);
+            }
+        }
+        for (int e = 0; e < adj.length; e++) {
+            adj[e].clear(e);
+        }
+        return new BitGraph(edgeNames, adj);
+    }
+
+    /**
+     * Returns the hypergraph induced by the given edges, containing the vertices
+     * that occur in them.
+     */
+    public Hypergraph subHypergraph(BitSet edgeSet) {
+        int[] newIndex = new int[vertexNames.length];
+        Arrays.fill(newIndex, -1);
+        ArrayList<String> vertices = new ArrayList<>();
+        String[] names = new String[edgeSet.cardinality()];
+        BitSet[] sub = new BitSet[names.length];
+        int i = 0;
+        for (int e = edgeSet.nextSetBit(0); e >= 0; e = edgeSet.nextSetBit(e + 1)) {
+            names[i] = edgeNames[e];
+            sub[i] = new BitSet();
+            for (int v = edges[e].nextSetBit(0); v >= 0; v = edges[e].nextSetBit(v + 1)) {
+                if (newIndex[v] < 0) {
+                    newIndex[v] = vertices.size();
+                    vertices.add(vertexNames[v]);
+                }
+                sub[i].set(newIndex[v]);
+            }
+            i++;
+        }
+        return new Hypergraph(names, vertices.toArray(new String[0]), sub);
+    }
+
+    /**
+     * Formats the hypergraph in the same format as
+     * {@link HypergraphBuilder#makeHypergraph()}.
+     */
+    public List<String> toLines() {
+        ArrayList<String> out = new ArrayList<>(edges.length);
+        for (int e = 0; e < edges.length; e++) {
+            StringBuilder sb = new StringBuilder(100);
+            sb.append(edgeNames[e]);
+            sb.append('(');
+            for (int v = edges[e].nextSetBit(0); v >= 0; v = edges[e].nextSetBit(v + 1)) {
+                sb.append(vertexNames[v]);
+                sb.append(',');
+            }
+            if (!edges[e].isEmpty()) {
+                sb.deleteCharAt(sb.length() - 1);
+            }
+            sb.append(')');
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+}
@@ -1,13 +1,18 @@
 package at.ac.tuwien.dbai;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.jgrapht.alg.util.UnionFind;
 
@@ -15,20 +20,244 @@ import at.ac.tuwien.dbai.App.Equality;
 
 public class HypergraphBuilder {
 
+    /** Output column standing for all the columns of an atom. */
+    public static final String ALL_COLUMNS = "*";
+
     private HashMap<String, HashSet<String>> hg;
     private int nextVar;
     private HashMap<String, String> colToVar;
     private UnionFind<String> vars;
+    private ColumnDictionary dict;
+    private HashMap<String, String> classNames;
+    /** Dictionary id of the column of every variable. */
+    private HashMap<String, Integer> globalIds;
+    private HashMap<String, String> relations;
+    /** Atoms that read another query block rather than a table. */
+    private HashSet<String> blockAtoms;
+    private HashMap<String, HashMap<String, Set<String>>> selections;
+    private ArrayList<String> filters;
+    /** The atoms of every filter, or {@code null} if they are unknown. */
+    private ArrayList<Set<String>> filterAtoms;
+    private HashMap<String, Set<String>> outputs;
+    private boolean distinct;
+    private boolean outerJoin;
+    private boolean correlated;
 
     public HypergraphBuilder() {
         hg = new HashMap<>();
         nextVar = 0;
         colToVar = new HashMap<>();
         vars = new UnionFind<>(new HashSet<>());
+        relations = new HashMap<>();
+        blockAtoms = new HashSet<>();
+        selections = new HashMap<>();
+        filters = new ArrayList<>();
+        filterAtoms = new ArrayList<>();
+        outputs = new HashMap<>();
+    }
+
+    /**
+     * Creates a builder whose variables are named after the global ids of the
+     * columns in a dictionary shared across queries. The ids are those of the
+     * {@code table.column} of the columns, whatever the alias of the table. A
+     * variable is named after the smallest id of its columns, so equal join
+     * classes get equal names in every query; in a self-join, a class whose
+     * name is taken by another one gets a suffix {@code _<n>}.
+     */
+    public HypergraphBuilder(ColumnDictionary dict) {
+        this();
+        this.dict = dict;
+        globalIds = new HashMap<>();
     }
 
     public void buildEdge(String table) {
-        hg.put(table, new HashSet<>());
+        buildAtom(table, table);
+    }
+
+    /**
+     * Adds an edge for an occurrence of a relation in the query, named after
+     * its alias, e.g. for every occurrence of a table in a self-join.
+     */
+    public void buildAtom(String atom, String relation) {
+        hg.put(atom, new HashSet<>());
+        relations.put(atom, relation);
+    }
+
+    /**
+     * Adds an edge for an occurrence of another query block, a CTE or a
+     * derived table, named after its alias.
+     */
+    public void buildBlockAtom(String atom, String block) {
+        buildAtom(atom, block);
+        blockAtoms.add(atom);
+    }
+
+    /**
+     * Returns whether an edge reads another query block rather than a table.
+     */
+    public boolean readsBlock(String atom) {
+        return blockAtoms.contains(atom);
+    }
+
+    /**
+     * Records a selection {@code table.col = value}. Selections do not change
+     * the hypergraph, but an atom can only be mapped to atoms with the same
+     * selections when the query is minimised. A positional parameter is
+     * written {@code ?<n>}, numbered from 1 in the order of the query, as two
+     * of them may have different values.
+     */
+    public void buildSelection(String table, String col, String value) {
+        if (!hg.containsKey(table)) {
+            throw new IllegalArgumentException("missing table in FROM: " + table);
+        }
+        // a column selected with two literals makes the query empty
+        selections.computeIfAbsent(table, k -> new HashMap<>()).computeIfAbsent(col, k -> new TreeSet<>())
+                .add(value);
+    }
+
+    /**
+     * Records a condition other than an equality, e.g. a comparison or a
+     * disjunction, on some atoms. Filters do not change the hypergraph, but an
+     * atom with a filter is kept when the query is minimised.
+     *
+     * @param atoms the atoms the condition refers to, or {@code null} if they
+     *        are unknown, e.g. for an ambiguous unqualified column
+     */
+    public void buildFilter(String condition, Set<String> atoms) {
+        if (atoms != null) {
+            for (String atom : atoms) {
+                if (!hg.containsKey(atom)) {
+                    throw new IllegalArgumentException("missing table in FROM: " + atom);
+                }
+            }
+        }
+        filters.add(condition);
+        filterAtoms.add(atoms);
+    }
+
+    /**
+     * Records an output column of an atom, or {@link #ALL_COLUMNS}. Outputs do
+     * not change the hypergraph, but they are kept when the query is
+     * minimised.
+     */
+    public void buildOutput(String atom, String col) {
+        if (!hg.containsKey(atom)) {
+            throw new IllegalArgumentException("missing table in FROM: " + atom);
+        }
+        outputs.computeIfAbsent(atom, k -> new TreeSet<>()).add(col);
+    }
+
+    /**
+     * Returns the output columns of an atom, {@link #ALL_COLUMNS} for all.
+     */
+    public Set<String> getOutputs(String atom) {
+        Set<String> cols = outputs.get(atom);
+        return cols != null ? cols : new TreeSet<>();
+    }
+
+    /**
+     * Records that the result of the query is a set, e.g. of a
+     * {@code SELECT DISTINCT}, so that it does not depend on how often a row
+     * occurs in the join and the query can be minimised.
+     */
+    public void buildDistinct() {
+        distinct = true;
+    }
+
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    /**
+     * Records that the query has an outer join, so it is not the join of its
+     * atoms the hypergraph describes.
+     */
+    public void buildOuterJoin() {
+        outerJoin = true;
+    }
+
+    public boolean hasOuterJoin() {
+        return outerJoin;
+    }
+
+    /**
+     * Records that the query is a subquery referring to columns of an
+     * enclosing query, which are selections with those columns.
+     */
+    public void buildCorrelation() {
+        correlated = true;
+    }
+
+    public boolean isCorrelated() {
+        return correlated;
+    }
+
+    /**
+     * Returns the filters referring to one atom only.
+     */
+    public List<String> getFilters(String atom) {
+        ArrayList<String> out = new ArrayList<>();
+        for (int i = 0; i < filters.size(); i++) {
+            Set<String> atoms = filterAtoms.get(i);
+            if (atoms != null && atoms.size() == 1 && atoms.contains(atom)) {
+                out.add(filters.get(i));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns the filters referring to several atoms, to none, or to unknown
+     * ones.
+     */
+    public List<String> getJoinFilters() {
+        ArrayList<String> out = new ArrayList<>();
+        for (int i = 0; i < filters.size(); i++) {
+            Set<String> atoms = filterAtoms.get(i);
+            if (atoms == null || atoms.size() != 1) {
+                out.add(filters.get(i));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns whether a filter may refer to an atom.
+     */
+    public boolean isFiltered(String atom) {
+        for (Set<String> atoms : filterAtoms) {
+            if (atoms == null || atoms.contains(atom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of the table of an edge.
+     */
+    public String getRelation(String atom) {
+        return relations.get(atom);
+    }
+
+    /**
+     * Returns the variable of every column of an edge.
+     */
+    public Map<String, String> getTerms(String atom) {
+        HashMap<String, String> terms = new HashMap<>();
+        for (String col : hg.get(atom)) {
+            terms.put(col, varName(colToVar.get(stringify(atom, col))));
+        }
+        return terms;
+    }
+
+    /**
+     * Returns the literals every selected column of an edge is selected with,
+     * in their natural order.
+     */
+    public Map<String, Set<String>> getSelections(String atom) {
+        HashMap<String, Set<String>> sel = selections.get(atom);
+        return sel != null ? sel : new HashMap<>();
     }
 
     public void buildEdge(String table, String col) {
@@ -36,10 +265,15 @@ public class HypergraphBuilder {
 
         String attr = stringify(table, col);
         colToVar.computeIfAbsent(attr, k -> {
+            // the names of the query stay local, only table.column is shared
             String vert = "v" + nextVar++;
+            if (dict != null) {
+                globalIds.put(vert, dict.id(stringify(relations.get(table), col)));
+            }
             vars.addElement(vert);
             return vert;
         });
+        classNames = null;
     }
 
     public void buildJoin(Equality eq) {
@@ -52,12 +286,56 @@ public class HypergraphBuilder {
         String vert1 = colToVar.get(stringify(eq.leftTable, eq.leftCol));
         String vert2 = colToVar.get(stringify(eq.rightTable, eq.rightCol));
         vars.union(vert1, vert2);
+        classNames = null;
     }
 
     private String stringify(String table, String col) {
         return table + "." + col;
     }
 
+    /**
+     * Returns the name of the variable class of a column's variable.
+     */
+    private String varName(String vert) {
+        String rep = vars.find(vert);
+        if (dict == null) {
+            return rep;
+        }
+        if (classNames == null) {
+            classNames = nameClasses();
+        }
+        return classNames.get(rep);
+    }
+
+    /**
+     * Names every variable class after the smallest dictionary id of its
+     * columns. Classes with the same smallest id, the copies of a column in a
+     * self-join, are told apart by a suffix, in the order of their smallest
+     * column.
+     */
+    private HashMap<String, String> nameClasses() {
+        HashMap<String, Integer> minId = new HashMap<>();
+        HashMap<String, String> minCol = new HashMap<>();
+        for (Map.Entry<String, String> entry : colToVar.entrySet()) {
+            String v = entry.getValue();
+            String rep = vars.find(v);
+            minId.merge(rep, globalIds.get(v), Math::min);
+            minCol.merge(rep, entry.getKey(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+        }
+        ArrayList<String> reps = new ArrayList<>(minId.keySet());
+        reps.sort(Comparator.comparing((String r) -> minId.get(r)).thenComparing(minCol::get));
+        HashMap<String, String> names = new HashMap<>();
+        int previous = -1;
+        int copy = 0;
+        for (String rep : reps) {
+            int id = minId.get(rep);
+            copy = id == previous ? copy + 1 : 0;
+            previous = id;
+            names.put(rep, copy == 0 ? "v" + id : "v" + id + "_" + copy);
+        }
+        return names;
+    }
+
     public List<String> makeHypergraph() {
         LinkedList<String> out = new LinkedList<>();
         for (Entry<String, HashSet<String>> edge : hg.entrySet()) {
@@ -69,7 +347,7 @@ public class HypergraphBuilder {
                 delete = true;
 
                 String vert = colToVar.get(stringify(edge.getKey(), v));
-                sb.append(vars.find(vert));
+                sb.append(varName(vert));
                 sb.append(',');
             }
             if (delete) {
@@ -81,11 +359,112 @@ public class HypergraphBuilder {
         return out;
     }
 
+    public Hypergraph toHypergraph() {
+        String[] edgeNames = new String[hg.size()];
+        BitSet[] edges = new BitSet[hg.size()];
+        HashMap<String, Integer> vertexIdx = new HashMap<>();
+        ArrayList<String> vertexNames = new ArrayList<>();
+        int e = 0;
+        for (Entry<String, HashSet<String>> edge : hg.entrySet()) {
+            edgeNames[e] = edge.getKey();
+            edges[e] = new BitSet();
+            for (String v : edge.getValue()) {
+                String vert = varName(colToVar.get(stringify(edge.getKey(), v)));
+                Integer idx = vertexIdx.get(vert);
+                if (idx == null) {
+                    idx = vertexNames.size();
+                    vertexIdx.put(vert, idx);
+                    vertexNames.add(vert);
+                }
+                edges[e].set(idx);
+            }
+            e++;
+        }
+        return new Hypergraph(edgeNames, vertexNames.toArray(new String[0]), edges);
+    }
+
+    /**
+     * Splits the hypergraph into its connected components. Tables are in the
+     * same component iff they are linked by a chain of joins, i.e. of shared
+     * variables.
+     */
+    public List<Hypergraph> getComponents() {
+        UnionFind<String> tables = new UnionFind<>(new HashSet<>(hg.keySet()));
+        HashMap<String, String> tableOfVar = new HashMap<>();
+        for (Entry<String, HashSet<String>> edge : hg.entrySet()) {
+            for (String v : edge.getValue()) {
+                String vert = varName(colToVar.get(stringify(edge.getKey(), v)));
+                String other = tableOfVar.putIfAbsent(vert, edge.getKey());
+                if (other != null) {
+                    tables.union(other, edge.getKey());
+                }
+            }
+        }
+
+        Hypergraph h = toHypergraph();
+        LinkedHashMap<String, BitSet> components = new LinkedHashMap<>();
+        for (int e = 0; e < h.edgeCount(); e++) {
+            components.computeIfAbsent(tables.find(h.edgeName(e)), k -> new BitSet()).set(e);
+        }
+        ArrayList<Hypergraph> out = new ArrayList<>(components.size());
+        for (BitSet component : components.values()) {
+            out.add(h.subHypergraph(component));
+        }
+        return out;
+    }
+
+    public BitGraph getPrimalGraph() {
+        return toHypergraph().primalGraph();
+    }
+
+    public BitGraph getDualGraph() {
+        return toHypergraph().dualGraph();
+    }
+
+    /**
+     * Weighs the hypergraph with table statistics. Every edge is weighted with
+     * the number of rows of its table and every variable with the smallest
+     * number of distinct values of its columns, which bounds the values the
+     * joined columns can take. The lines are {@code edge <table>=<rows>} in the
+     * order of {@link #makeHypergraph()}, then {@code vertex <var>=<distinct>},
+     * with {@code unknown} for missing statistics.
+     */
+    public List<String> getWeights(TableStatistics stats) {
+        ArrayList<String> lines = new ArrayList<>();
+        for (String table : hg.keySet()) {
+            lines.add("edge " + table + "=" + weight(stats.getRows(relations.get(table))));
+        }
+        for (Entry<String, Long> vertex : getDistinct(stats).entrySet()) {
+            lines.add("vertex " + vertex.getKey() + "=" + weight(vertex.getValue()));
+        }
+        return lines;
+    }
+
+    /**
+     * Estimates the number of distinct values of every variable, the smallest
+     * one of its columns, or -1 if none of them is known.
+     */
+    public Map<String, Long> getDistinct(TableStatistics stats) {
+        LinkedHashMap<String, Long> distinct = new LinkedHashMap<>();
+        for (Entry<String, HashSet<String>> edge : hg.entrySet()) {
+            for (String col : edge.getValue()) {
+                String v = varName(colToVar.get(stringify(edge.getKey(), col)));
+                long n = stats.getDistinct(relations.get(edge.getKey()), col);
+                distinct.merge(v, n, (a, b) -> a < 0 ? b : b < 0 ? a : Math.min(a, b));
+            }
+        }
+        return distinct;
+    }
+
+    private static String weight(long n) {
+        return n >= 0 ? Long.toString(n) : "unknown";
+    }
+
     public List<String> getMapping() {
         HashMap<String, List<String>> varToCol = new HashMap<>();
         for (Map.Entry<String, String> entry : colToVar.entrySet()) {
             String col = entry.getKey();
-            String v = vars.find(entry.getValue());
+            String v = varName(entry.getValue());
             varToCol.computeIfAbsent(v, k -> new LinkedList<>()).add(col);
         }
 
@@ -0,0 +1,650 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Partitions the relations of a query into {@code k} parts, e.g. the nodes
+ * of a cluster, so that few join variables are shared by several parts.
+ *
+ * <p>
+ * This is hypergraph partitioning with the roles of edges and vertices
+ * swapped: every edge (atom) of the query hypergraph is a node to be placed,
+ * and every variable is a net connecting the atoms it occurs in. A variable
+ * is cut if its atoms are in more than one part, and the cut is the total
+ * weight of the cut variables. The weight of every part, the sum of the
+ * weights of its atoms, is at most {@code (1 + imbalance)} times the average,
+ * but at least the average rounded up and the weight of the heaviest atom.
+ * If the weights do not allow that, e.g. with a few very large tables, the
+ * partition exceeds the bound as little as it can.
+ *
+ * <p>
+ * The parts are found by recursive bisection. Every bisection is multilevel:
+ * the atoms are coarsened by repeatedly merging pairs that share heavy
+ * variables, the coarsest hypergraph is bisected by greedy growing from
+ * several seeds, and the bisection is projected back level by level and
+ * refined by Fiduccia-Mattheyses at every level. Variables cut by a
+ * bisection are dropped from the following ones, as they are cut anyway.
+ */
+public final class HypergraphPartitioner {
+
+    /** Coarsening stops at this many nodes. */
+    private static final int COARSEST = 24;
+    private static final int INITIAL_TRIES = 8;
+    private static final int MAX_PASSES = 8;
+    private static final long SEED = 42;
+
+    private final Hypergraph h;
+    private final int k;
+    private final int[] parts;
+    private final long[] partWeights;
+    private final long cut;
+    private final BitSet cutVariables;
+
+    private HypergraphPartitioner(Hypergraph h, int k, int[] parts, long[] atomWeights, long[] varWeights) {
+        this.h = h;
+        this.k = k;
+        this.parts = parts;
+        partWeights = new long[k];
+        for (int e = 0; e < parts.length; e++) {
+            partWeights[parts[e]] += atomWeights[e];
+        }
+        BitSet[] inc = h.incidence();
+        cutVariables = new BitSet(inc.length);
+        long c = 0;
+        for (int v = 0; v < inc.length; v++) {
+            int first = inc[v].nextSetBit(0);
+            for (int e = inc[v].nextSetBit(first + 1); e >= 0; e = inc[v].nextSetBit(e + 1)) {
+                if (parts[e] != parts[first]) {
+                    cutVariables.set(v);
+                    c += varWeights[v];
+                    break;
+                }
+            }
+        }
+        cut = c;
+    }
+
+    /**
+     * Partitions the atoms of a hypergraph.
+     *
+     * @param atomWeights weight of every edge, or {@code null} for unit weights
+     * @param varWeights weight of every vertex, or {@code null} for unit weights
+     * @param imbalance allowed excess of a part over the average weight, e.g.
+     *        0.1 for 10%
+     */
+    public static HypergraphPartitioner partition(Hypergraph h, int k, long[] atomWeights, long[] varWeights,
+            double imbalance) {
+        if (k < 1) {
+            throw new IllegalArgumentException("number of parts must be positive: " + k);
+        }
+        long[] aw = atomWeights != null ? atomWeights : ones(h.edgeCount());
+        long[] vw = varWeights != null ? varWeights : ones(h.vertexCount());
+        BitSet[] inc = h.incidence();
+        List<int[]> pins = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+        for (int v = 0; v < inc.length; v++) {
+            if (inc[v].cardinality() > 1 && vw[v] > 0) {
+                pins.add(inc[v].stream().toArray());
+                weights.add(vw[v]);
+            }
+        }
+        int n = h.edgeCount();
+        int[] nodes = new int[n];
+        for (int e = 0; e < n; e++) {
+            nodes[e] = e;
+        }
+        int levels = 32 - Integer.numberOfLeadingZeros(Math.max(1, k - 1));
+        // the imbalance compounds over the levels of the recursion
+        double eps = levels > 0 ? Math.pow(1 + imbalance, 1.0 / levels) - 1 : imbalance;
+        int[] parts = new int[n];
+        Random random = new Random(SEED);
+        new Recursion(parts, eps, random).split(Problem.of(nodes, aw, pins, weights), k, 0);
+        return new HypergraphPartitioner(h, k, parts, aw, vw);
+    }
+
+    private static long[] ones(int n) {
+        long[] w = new long[n];
+        Arrays.fill(w, 1);
+        return w;
+    }
+
+    /**
+     * Returns the part of every edge (atom) of the hypergraph.
+     */
+    public int[] getParts() {
+        return parts;
+    }
+
+    /**
+     * Returns the total weight of the variables shared by several parts.
+     */
+    public long getCut() {
+        return cut;
+    }
+
+    /**
+     * Formats the partition: a summary line with the cut and the cut
+     * variables, then one {@code <part> weight=<w>: <atom>...} line per part.
+     */
+    public List<String> toLines() {
+        ArrayList<String> lines = new ArrayList<>(k + 1);
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT, "parts=%d cut=%d cut_variables=", k, cut));
+        String sep = "";
+        for (int v = cutVariables.nextSetBit(0); v >= 0; v = cutVariables.nextSetBit(v + 1)) {
+            summary.append(sep).append(h.vertexName(v));
+            sep = ",";
+        }
+        lines.add(summary.toString());
+        for (int p = 0; p < k; p++) {
+            StringBuilder sb = new StringBuilder().append(p).append(" weight=").append(partWeights[p]).append(':');
+            for (int e = 0; e < parts.length; e++) {
+                if (parts[e] == p) {
+                    sb.append(' ').append(h.edgeName(e));
+                }
+            }
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * A weighted hypergraph of nodes and nets to be bisected. Nodes are
+     * numbered from 0; {@code ids} maps them back to the atoms of the query,
+     * except in coarsened problems, whose nodes are clusters of atoms.
+     */
+    private static final class Problem {
+        final int[] ids;
+        final long[] nodeWeights;
+        final int[][] nets;
+        final long[] netWeights;
+        /** Nets of every node. */
+        final int[][] netsOf;
+        final long totalWeight;
+
+        Problem(int[] ids, long[] nodeWeights, int[][] nets, long[] netWeights) {
+            this.ids = ids;
+            this.nodeWeights = nodeWeights;
+            this.nets = nets;
+            this.netWeights = netWeights;
+            int[] degree = new int[ids.length];
+            for (int[] net : nets) {
+                for (int u : net) {
+                    degree[u]++;
+                }
+            }
+            netsOf = new int[ids.length][];
+            for (int u = 0; u < ids.length; u++) {
+                netsOf[u] = new int[degree[u]];
+            }
+            Arrays.fill(degree, 0);
+            for (int i = 0; i < nets.length; i++) {
+                for (int u : nets[i]) {
+                    netsOf[u][degree[u]++] = i;
+                }
+            }
+            long w = 0;
+            for (long x : nodeWeights) {
+                w += x;
+            }
+            totalWeight = w;
+        }
+
+        /**
+         * Builds the problem of some atoms, with the nets given over atom ids.
+         */
+        static Problem of(int[] ids, long[] atomWeights, List<int[]> pins, List<Long> weights) {
+            int[] index = new int[atomWeights.length];
+            Arrays.fill(index, -1);
+            long[] nodeWeights = new long[ids.length];
+            for (int u = 0; u < ids.length; u++) {
+                index[ids[u]] = u;
+                nodeWeights[u] = atomWeights[ids[u]];
+            }
+            int[][] nets = new int[pins.size()][];
+            long[] netWeights = new long[pins.size()];
+            for (int i = 0; i < nets.length; i++) {
+                int[] net = pins.get(i).clone();
+                for (int j = 0; j < net.length; j++) {
+                    net[j] = index[net[j]];
+                }
+                nets[i] = net;
+                netWeights[i] = weights.get(i);
+            }
+            return new Problem(ids, nodeWeights, nets, netWeights);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        long maxNodeWeight() {
+            long max = 0;
+            for (long w : nodeWeights) {
+                max = Math.max(max, w);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Recursive bisection into the parts {@code first, ..., first + k - 1}.
+     */
+    private static final class Recursion {
+        private final int[] parts;
+        private final double eps;
+        private final Random random;
+
+        Recursion(int[] parts, double eps, Random random) {
+            this.parts = parts;
+            this.eps = eps;
+            this.random = random;
+        }
+
+        void split(Problem p, int k, int first) {
+            if (k == 1 || p.size() == 0) {
+                for (int id : p.ids) {
+                    parts[id] = first;
+                }
+                return;
+            }
+            int k0 = k / 2;
+            double target0 = (double) p.totalWeight * k0 / k;
+            long[] max = {maxWeight(target0, p), maxWeight(p.totalWeight - target0, p)};
+            int[] side = new Bisection(p, target0, max, random).run();
+            split(restrict(p, side, 0), k0, first);
+            split(restrict(p, side, 1), k - k0, first + k0);
+        }
+
+        /**
+         * Returns the maximum weight of a side with the given target weight:
+         * the target with the allowed imbalance, but at least the target
+         * rounded up and the weight of the heaviest node.
+         */
+        private long maxWeight(double target, Problem p) {
+            long max = Math.max((long) Math.floor(target * (1 + eps)), (long) Math.ceil(target));
+            return Math.max(max, p.maxNodeWeight());
+        }
+
+        /**
+         * Returns the problem of the nodes on one side, keeping the nets that
+         * are not cut.
+         */
+        private static Problem restrict(Problem p, int[] side, int s) {
+            int[] index = new int[p.size()];
+            int n = 0;
+            for (int u = 0; u < p.size(); u++) {
+                index[u] = side[u] == s ? n++ : -1;
+            }
+            int[] ids = new int[n];
+            long[] weights = new long[n];
+            for (int u = 0; u < p.size(); u++) {
+                if (index[u] >= 0) {
+                    ids[index[u]] = p.ids[u];
+                    weights[index[u]] = p.nodeWeights[u];
+                }
+            }
+            List<int[]> nets = new ArrayList<>();
+            List<Long> netWeights = new ArrayList<>();
+            for (int i = 0; i < p.nets.length; i++) {
+                int[] net = p.nets[i];
+                boolean inside = true;
+                for (int u : net) {
+                    inside &= side[u] == s;
+                }
+                if (inside) {
+                    int[] mapped = new int[net.length];
+                    for (int j = 0; j < net.length; j++) {
+                        mapped[j] = index[net[j]];
+                    }
+                    nets.add(mapped);
+                    netWeights.add(p.netWeights[i]);
+                }
+            }
+            long[] nw = new long[nets.size()];
+            for (int i = 0; i < nw.length; i++) {
+                nw[i] = netWeights.get(i);
+            }
+            return new Problem(ids, weights, nets.toArray(new int[0][]), nw);
+        }
+    }
+
+    /**
+     * Multilevel bisection of a problem: side 0 should weigh about
+     * {@code target0}, and side {@code s} at most {@code max[s]}.
+     */
+    private static final class Bisection {
+        private final Problem top;
+        private final double target0;
+        private final long[] max;
+        private final Random random;
+
+        Bisection(Problem top, double target0, long[] max, Random random) {
+            this.top = top;
+            this.target0 = target0;
+            this.max = max;
+            this.random = random;
+        }
+
+        int[] run() {
+            List<Problem> levels = new ArrayList<>();
+            List<int[]> maps = new ArrayList<>();
+            levels.add(top);
+            Problem p = top;
+            long clusterLimit = Math.max(p.maxNodeWeight(), p.totalWeight / COARSEST);
+            while (p.size() > COARSEST) {
+                int[] map = new int[p.size()];
+                Problem coarse = coarsen(p, map, clusterLimit);
+                if (coarse.size() > p.size() * 0.9) {
+                    break;
+                }
+                maps.add(map);
+                levels.add(coarse);
+                p = coarse;
+            }
+            int[] side = initial(p);
+            for (int l = levels.size() - 2; l >= 0; l--) {
+                int[] map = maps.get(l);
+                int[] fine = new int[levels.get(l).size()];
+                for (int u = 0; u < fine.length; u++) {
+                    fine[u] = side[map[u]];
+                }
+                side = fine;
+                refine(levels.get(l), side);
+            }
+            return side;
+        }
+
+        /**
+         * Merges pairs of nodes by heavy-edge matching: every node, in random
+         * order, is merged with the unmatched neighbour with which it shares
+         * the most net weight, each net counting in inverse proportion to its
+         * size.
+         *
+         * @param map filled with the coarse node of every node
+         */
+        private Problem coarsen(Problem p, int[] map, long clusterLimit) {
+            int n = p.size();
+            Arrays.fill(map, -1);
+            int[] order = shuffled(n);
+            double[] rating = new double[n];
+            int[] touched = new int[n];
+            int coarse = 0;
+            for (int u : order) {
+                if (map[u] >= 0) {
+                    continue;
+                }
+                int count = 0;
+                for (int i : p.netsOf[u]) {
+                    double r = (double) p.netWeights[i] / (p.nets[i].length - 1);
+                    for (int w : p.nets[i]) {
+                        if (w != u && map[w] < 0) {
+                            if (rating[w] == 0) {
+                                touched[count++] = w;
+                            }
+                            rating[w] += r;
+                        }
+                    }
+                }
+                int best = -1;
+                for (int j = 0; j < count; j++) {
+                    int w = touched[j];
+                    if (p.nodeWeights[u] + p.nodeWeights[w] <= clusterLimit
+                            && (best < 0 || rating[w] > rating[best])) {
+                        best = w;
+                    }
+                    rating[w] = 0;
+                }
+                map[u] = coarse;
+                if (best >= 0) {
+                    map[best] = coarse;
+                }
+                coarse++;
+            }
+            int[] ids = new int[coarse];
+            long[] weights = new long[coarse];
+            for (int u = 0; u < n; u++) {
+                weights[map[u]] += p.nodeWeights[u];
+            }
+            List<int[]> nets = new ArrayList<>();
+            List<Long> netWeights = new ArrayList<>();
+            int[] seen = new int[coarse];
+            Arrays.fill(seen, -1);
+            for (int i = 0; i < p.nets.length; i++) {
+                int[] pins = new int[p.nets[i].length];
+                int size = 0;
+                for (int u : p.nets[i]) {
+                    int c = map[u];
+                    if (seen[c] != i) {
+                        seen[c] = i;
+                        pins[size++] = c;
+                    }
+                }
+                // a net inside a single coarse node can no longer be cut
+                if (size > 1) {
+                    nets.add(Arrays.copyOf(pins, size));
+                    netWeights.add(p.netWeights[i]);
+                }
+            }
+            long[] nw = new long[nets.size()];
+            for (int i = 0; i < nw.length; i++) {
+                nw[i] = netWeights.get(i);
+            }
+            return new Problem(ids, weights, nets.toArray(new int[0][]), nw);
+        }
+
+        /**
+         * Bisects the coarsest problem: grows side 0 from several random seeds,
+         * always adding the node that most reduces the cut, refines every
+         * bisection and keeps the best one.
+         */
+        private int[] initial(Problem p) {
+            int n = p.size();
+            int[] best = null;
+            long bestExcess = Long.MAX_VALUE;
+            long bestCut = Long.MAX_VALUE;
+            for (int t = 0; t < Math.min(INITIAL_TRIES, Math.max(1, n)); t++) {
+                int[] side = new int[n];
+                Arrays.fill(side, 1);
+                long weight0 = 0;
+                int seed = n > 0 ? random.nextInt(n) : -1;
+                while (seed >= 0 && weight0 + p.nodeWeights[seed] <= max[0]) {
+                    side[seed] = 0;
+                    weight0 += p.nodeWeights[seed];
+                    if (weight0 >= target0) {
+                        break;
+                    }
+                    seed = nextToGrow(p, side);
+                }
+                refine(p, side);
+                long[] weight = new long[2];
+                for (int u = 0; u < n; u++) {
+                    weight[side[u]] += p.nodeWeights[u];
+                }
+                long ex = excess(weight);
+                long c = cut(p, side);
+                if (ex < bestExcess || ex == bestExcess && c < bestCut) {
+                    bestExcess = ex;
+                    bestCut = c;
+                    best = side;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Returns the node of side 1 whose move to side 0 has the largest gain,
+         * preferring nodes adjacent to side 0, or -1 if side 1 is empty.
+         */
+        private static int nextToGrow(Problem p, int[] side) {
+            int best = -1;
+            long bestGain = Long.MIN_VALUE;
+            boolean bestAdjacent = false;
+            int[][] count = counts(p, side);
+            for (int u = 0; u < p.size(); u++) {
+                if (side[u] != 1) {
+                    continue;
+                }
+                boolean adjacent = false;
+                for (int i : p.netsOf[u]) {
+                    adjacent |= count[i][0] > 0;
+                }
+                long g = gain(p, side, count, u);
+                if (best < 0 || adjacent && !bestAdjacent || adjacent == bestAdjacent && g > bestGain) {
+                    best = u;
+                    bestGain = g;
+                    bestAdjacent = adjacent;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Fiduccia-Mattheyses refinement: moves every node at most once per
+         * pass, always the one with the largest gain that keeps the sides
+         * within their maximum weight, and keeps the best prefix of the moves.
+         */
+        private void refine(Problem p, int[] side) {
+            int n = p.size();
+            long[] weight = new long[2];
+            for (int u = 0; u < n; u++) {
+                weight[side[u]] += p.nodeWeights[u];
+            }
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                int[][] count = counts(p, side);
+                long[] gains = new long[n];
+                for (int u = 0; u < n; u++) {
+                    gains[u] = gain(p, side, count, u);
+                }
+                boolean[] locked = new boolean[n];
+                int[] moves = new int[n];
+                int moved = 0;
+                long total = 0;
+                long bestTotal = 0;
+                int bestMoved = 0;
+                long bestExcess = excess(weight);
+                while (true) {
+                    int best = -1;
+                    for (int u = 0; u < n; u++) {
+                        if (locked[u]) {
+                            continue;
+                        }
+                        int to = 1 - side[u];
+                        boolean fits = weight[to] + p.nodeWeights[u] <= max[to];
+                        // moves out of an overweight side are always allowed
+                        boolean relieves = weight[side[u]] > max[side[u]];
+                        if ((fits || relieves) && (best < 0 || gains[u] > gains[best])) {
+                            best = u;
+                        }
+                    }
+                    if (best < 0) {
+                        break;
+                    }
+                    total += gains[best];
+                    move(p, side, count, gains, locked, best);
+                    weight[1 - side[best]] -= p.nodeWeights[best];
+                    weight[side[best]] += p.nodeWeights[best];
+                    locked[best] = true;
+                    moves[moved++] = best;
+                    long ex = excess(weight);
+                    if (ex < bestExcess || ex == bestExcess && total > bestTotal) {
+                        bestTotal = total;
+                        bestMoved = moved;
+                        bestExcess = ex;
+                    }
+                }
+                for (int i = moved - 1; i >= bestMoved; i--) {
+                    int u = moves[i];
+                    weight[side[u]] -= p.nodeWeights[u];
+                    side[u] = 1 - side[u];
+                    weight[side[u]] += p.nodeWeights[u];
+                }
+                if (bestMoved == 0) {
+                    return;
+                }
+            }
+        }
+
+        private long excess(long[] weight) {
+            return Math.max(0, weight[0] - max[0]) + Math.max(0, weight[1] - max[1]);
+        }
+
+        /**
+         * Moves a node to the other side and updates the counts of its nets and
+         * the gains of the unlocked nodes on them.
+         */
+        private static void move(Problem p, int[] side, int[][] count, long[] gains, boolean[] locked, int u) {
+            int from = side[u];
+            int to = 1 - from;
+            side[u] = to;
+            for (int i : p.netsOf[u]) {
+                count[i][from]--;
+                count[i][to]++;
+                for (int w : p.nets[i]) {
+                    if (!locked[w] && w != u) {
+                        gains[w] = gain(p, side, count, w);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns how much the cut decreases if a node moves to the other side.
+         */
+        private static long gain(Problem p, int[] side, int[][] count, int u) {
+            int from = side[u];
+            long g = 0;
+            for (int i : p.netsOf[u]) {
+                if (count[i][from] == 1) {
+                    g += p.netWeights[i];
+                } else if (count[i][1 - from] == 0) {
+                    g -= p.netWeights[i];
+                }
+            }
+            return g;
+        }
+
+        /**
+         * Returns the number of nodes of every net on each side.
+         */
+        private static int[][] counts(Problem p, int[] side) {
+            int[][] count = new int[p.nets.length][2];
+            for (int i = 0; i < p.nets.length; i++) {
+                for (int u : p.nets[i]) {
+                    count[i][side[u]]++;
+                }
+            }
+            return count;
+        }
+
+        private static long cut(Problem p, int[] side) {
+            int[][] count = counts(p, side);
+            long c = 0;
+            for (int i = 0; i < p.nets.length; i++) {
+                if (count[i][0] > 0 && count[i][1] > 0) {
+                    c += p.netWeights[i];
+                }
+            }
+            return c;
+        }
+
+        private int[] shuffled(int n) {
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            return order;
+        }
+    }
+
+}
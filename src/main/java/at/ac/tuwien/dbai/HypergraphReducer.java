@@ -0,0 +1,393 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Simplifies a hypergraph before decomposition by removing edges that are
+ * subsets of other edges, collapsing vertices that occur in exactly the same
+ * edges and dropping vertices that occur in a single edge. The passes are
+ * repeated until none of them applies.
+ *
+ * <p>
+ * Every change is recorded as a {@link Step}, so that a decomposition of the
+ * reduced hypergraph can be mapped back to the original one by replaying the
+ * trace in reverse order.
+ */
+public final class HypergraphReducer {
+
+    /**
+     * Kind of a reduction step.
+     */
+    public enum Kind {
+        /** Edge {@code subject} was a subset of edge {@code target}. */
+        REMOVE_EDGE("remove"),
+        /** Vertex {@code subject} occurred in the same edges as {@code target}. */
+        MERGE_VERTEX("merge"),
+        /** Vertex {@code subject} occurred only in edge {@code target}. */
+        DROP_VERTEX("drop");
+
+        private final String keyword;
+
+        Kind(String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    /**
+     * A single reduction step. To undo it on a decomposition: a removed edge is
+     * covered wherever its target edge is covered, a merged vertex is added to
+     * every bag containing its target vertex and a dropped vertex is added to a
+     * bag covering its target edge.
+     */
+    public static final class Step {
+        private final Kind kind;
+        private final String subject;
+        private final String target;
+
+        Step(Kind kind, String subject, String target) {
+            this.kind = kind;
+            this.subject = subject;
+            this.target = target;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            return kind.keyword + ' ' + subject + ' ' + target;
+        }
+    }
+
+    /**
+     * The reduced hypergraph together with the trace that produced it.
+     */
+    public static final class Result {
+        private final Hypergraph reduced;
+        private final List<Step> trace;
+
+        Result(Hypergraph reduced, List<Step> trace) {
+            this.reduced = reduced;
+            this.trace = trace;
+        }
+
+        public Hypergraph getReduced() {
+            return reduced;
+        }
+
+        public List<Step> getTrace() {
+            return trace;
+        }
+
+        /**
+         * Returns whether the hypergraph is alpha-acyclic. Removing subsumed
+         * edges and vertices occurring in a single edge is the GYO reduction,
+         * which leaves at most one edge iff the hypergraph is acyclic.
+         */
+        public boolean isAcyclic() {
+            return reduced.edgeCount() <= 1;
+        }
+
+        /**
+         * Adds to a bag of the reduced hypergraph all the vertices that were
+         * merged into one of its vertices.
+         */
+        public Set<String> restoreMerged(Collection<String> bag) {
+            HashSet<String> out = new HashSet<>(bag);
+            for (int i = trace.size() - 1; i >= 0; i--) {
+                Step step = trace.get(i);
+                if (step.kind == Kind.MERGE_VERTEX && out.contains(step.target)) {
+                    out.add(step.subject);
+                }
+            }
+            return out;
+        }
+
+        public List<String> traceLines() {
+            ArrayList<String> lines = new ArrayList<>(trace.size());
+            for (Step step : trace) {
+                lines.add(step.toString());
+            }
+            return lines;
+        }
+    }
+
+    private final Hypergraph h;
+    private final BitSet[] edges;
+    private final boolean[] edgeAlive;
+    private final boolean[] vertexAlive;
+    private final int[][] incidence;
+    private final int[] incidenceSize;
+    private final int[] degree;
+    private final ArrayDeque<Integer> vertexQueue = new ArrayDeque<>();
+    private final ArrayDeque<Integer> edgeQueue = new ArrayDeque<>();
+    private final boolean[] vertexQueued;
+    private final boolean[] edgeQueued;
+    private final BitSet aliveEdges;
+    private int firstAlive;
+    private final ArrayList<Step> trace = new ArrayList<>();
+
+    private HypergraphReducer(Hypergraph h) {
+        this.h = h;
+        int m = h.edgeCount();
+        int n = h.vertexCount();
+        edges = new BitSet[m];
+        edgeAlive = new boolean[m];
+        edgeQueued = new boolean[m];
+        aliveEdges = new BitSet(m);
+        vertexAlive = new boolean[n];
+        vertexQueued = new boolean[n];
+        degree = new int[n];
+        incidenceSize = new int[n];
+        for (int e = 0; e < m; e++) {
+            edges[e] = (BitSet) h.edge(e).clone();
+            edgeAlive[e] = true;
+            for (int v = edges[e].nextSetBit(0); v >= 0; v = edges[e].nextSetBit(v + 1)) {
+                degree[v]++;
+            }
+        }
+        aliveEdges.set(0, m);
+        incidence = new int[n][];
+        for (int v = 0; v < n; v++) {
+            incidence[v] = new int[degree[v]];
+            vertexAlive[v] = degree[v] > 0;
+        }
+        for (int e = 0; e < m; e++) {
+            for (int v = edges[e].nextSetBit(0); v >= 0; v = edges[e].nextSetBit(v + 1)) {
+                incidence[v][incidenceSize[v]++] = e;
+            }
+        }
+    }
+
+    /**
+     * Reduces the given hypergraph. The input is not modified.
+     */
+    public static Result reduce(Hypergraph h) {
+        HypergraphReducer r = new HypergraphReducer(h);
+        for (int v = 0; v < h.vertexCount(); v++) {
+            r.queueVertex(v);
+        }
+        for (int e = 0; e < h.edgeCount(); e++) {
+            r.queueEdge(e);
+        }
+        do {
+            r.drainQueues();
+        } while (r.mergeTwins());
+        return new Result(r.compact(), r.trace);
+    }
+
+    private void queueVertex(int v) {
+        if (!vertexQueued[v]) {
+            vertexQueued[v] = true;
+            vertexQueue.add(v);
+        }
+    }
+
+    private void queueEdge(int e) {
+        if (!edgeQueued[e]) {
+            edgeQueued[e] = true;
+            edgeQueue.add(e);
+        }
+    }
+
+    private void drainQueues() {
+        while (!vertexQueue.isEmpty() || !edgeQueue.isEmpty()) {
+            while (!vertexQueue.isEmpty()) {
+                int v = vertexQueue.poll();
+                vertexQueued[v] = false;
+                if (vertexAlive[v] && degree[v] == 1) {
+                    dropVertex(v);
+                }
+            }
+            while (!edgeQueue.isEmpty()) {
+                int e = edgeQueue.poll();
+                edgeQueued[e] = false;
+                if (edgeAlive[e]) {
+                    int f = findSuperset(e);
+                    if (f >= 0) {
+                        removeEdge(e, f);
+                    }
+                }
+            }
+        }
+    }
+
+    private void dropVertex(int v) {
+        int e = firstAliveEdge(v);
+        edges[e].clear(v);
+        vertexAlive[v] = false;
+        degree[v] = 0;
+        trace.add(new Step(Kind.DROP_VERTEX, h.vertexName(v), h.edgeName(e)));
+        queueEdge(e);
+    }
+
+    private void removeEdge(int e, int f) {
+        edgeAlive[e] = false;
+        aliveEdges.clear(e);
+        for (int v = edges[e].nextSetBit(0); v >= 0; v = edges[e].nextSetBit(v + 1)) {
+            degree[v]--;
+            queueVertex(v);
+        }
+        trace.add(new Step(Kind.REMOVE_EDGE, h.edgeName(e), h.edgeName(f)));
+    }
+
+    /**
+     * Returns the first live edge in the incidence list of {@code v}, dropping
+     * dead edges from the list on the way.
+     */
+    private int firstAliveEdge(int v) {
+        int[] list = incidence[v];
+        while (incidenceSize[v] > 0) {
+            int e = list[0];
+            if (edgeAlive[e] && edges[e].get(v)) {
+                return e;
+            }
+            list[0] = list[--incidenceSize[v]];
+        }
+        return -1;
+    }
+
+    private int findSuperset(int e) {
+        BitSet edge = edges[e];
+        if (edge.isEmpty()) {
+            // edges never come back to life, so the first live edge only moves forward
+            firstAlive = aliveEdges.nextSetBit(firstAlive);
+            return firstAlive != e ? firstAlive : aliveEdges.nextSetBit(e + 1);
+        }
+        int rarest = -1;
+        for (int v = edge.nextSetBit(0); v >= 0; v = edge.nextSetBit(v + 1)) {
+            if (rarest < 0 || degree[v] < degree[rarest]) {
+                rarest = v;
+            }
+        }
+        int size = edge.cardinality();
+        int[] list = incidence[rarest];
+        int i = 0;
+        while (i < incidenceSize[rarest]) {
+            int f = list[i];
+            if (!edgeAlive[f] || !edges[f].get(rarest)) {
+                list[i] = list[--incidenceSize[rarest]];
+                continue;
+            }
+            if (f != e && edges[f].cardinality() >= size && isSubset(edge, edges[f])) {
+                return f;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isSubset(BitSet a, BitSet b) {
+        for (int v = a.nextSetBit(0); v >= 0; v = a.nextSetBit(v + 1)) {
+            if (!b.get(v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collapses every group of live vertices with identical edge sets into its
+     * lowest-numbered vertex.
+     *
+     * @return whether any vertex was merged
+     */
+    private boolean mergeTwins() {
+        HashMap<EdgeList, Integer> seen = new HashMap<>();
+        boolean merged = false;
+        for (int v = 0; v < vertexAlive.length; v++) {
+            if (!vertexAlive[v]) {
+                continue;
+            }
+            EdgeList key = new EdgeList(liveIncidence(v));
+            Integer rep = seen.putIfAbsent(key, v);
+            if (rep != null) {
+                for (int e : key.edges) {
+                    edges[e].clear(v);
+                    queueEdge(e);
+                }
+                vertexAlive[v] = false;
+                degree[v] = 0;
+                trace.add(new Step(Kind.MERGE_VERTEX, h.vertexName(v), h.vertexName(rep)));
+                merged = true;
+            }
+        }
+        return merged;
+    }
+
+    private int[] liveIncidence(int v) {
+        int[] list = incidence[v];
+        int w = 0;
+        for (int i = 0; i < incidenceSize[v]; i++) {
+            int e = list[i];
+            if (edgeAlive[e] && edges[e].get(v)) {
+                list[w++] = e;
+            }
+        }
+        incidenceSize[v] = w;
+        int[] live = Arrays.copyOf(list, w);
+        Arrays.sort(live);
+        return live;
+    }
+
+    private Hypergraph compact() {
+        int[] newIndex = new int[vertexAlive.length];
+        ArrayList<String> vertexNames = new ArrayList<>();
+        for (int v = 0; v < vertexAlive.length; v++) {
+            if (vertexAlive[v]) {
+                newIndex[v] = vertexNames.size();
+                vertexNames.add(h.vertexName(v));
+            }
+        }
+        ArrayList<String> edgeNames = new ArrayList<>();
+        ArrayList<BitSet> newEdges = new ArrayList<>();
+        for (int e = aliveEdges.nextSetBit(0); e >= 0; e = aliveEdges.nextSetBit(e + 1)) {
+            BitSet edge = new BitSet();
+            for (int v = edges[e].nextSetBit(0); v >= 0; v = edges[e].nextSetBit(v + 1)) {
+                edge.set(newIndex[v]);
+            }
+            edgeNames.add(h.edgeName(e));
+            newEdges.add(edge);
+        }
+        return new Hypergraph(edgeNames.toArray(new String[0]), vertexNames.toArray(new String[0]),
+                newEdges.toArray(new BitSet[0]));
+    }
+
+    private static final class EdgeList {
+        private final int[] edges;
+        private final int hash;
+
+        EdgeList(int[] edges) {
+            this.edges = edges;
+            this.hash = Arrays.hashCode(edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof EdgeList && Arrays.equals(edges, ((EdgeList) obj).edges);
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Histogram of non-negative integers with a bounded number of buckets, from
+ * which quantiles can be estimated. Values below {@link #LINEAR} have a bucket
+ * each; larger values share buckets that split every power of two into
+ * {@link #SUB_BUCKETS}, so a quantile is within about 6% of the exact value.
+ * Histograms are merged by adding their counts, e.g. to combine the
+ * histograms of several workers.
+ */
+public final class LogHistogram {
+
+    private static final int LINEAR = 64;
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR_BITS = Long.numberOfTrailingZeros(LINEAR);
+
+    private long[] counts = new long[LINEAR];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void add(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value: " + value);
+        }
+        int b = bucket(value);
+        if (b >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(b + 1, counts.length * 2));
+        }
+        counts[b]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all the values of another histogram to this one.
+     */
+    public void merge(LogHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int b = 0; b < other.counts.length; b++) {
+            counts[b] += other.counts[b];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    public long getMax() {
+        return count > 0 ? max : 0;
+    }
+
+    public double getMean() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * Estimates the value below which a fraction {@code q} of the values lie.
+     */
+    public long quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int b = 0; b < counts.length; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, lowerBound(b)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the non-empty buckets as {@code <lower bound>=<count>}, in
+     * increasing order.
+     */
+    public List<String> buckets() {
+        ArrayList<String> out = new ArrayList<>();
+        for (int b = 0; b < counts.length; b++) {
+            if (counts[b] > 0) {
+                out.add(lowerBound(b) + "=" + counts[b]);
+            }
+        }
+        return out;
+    }
+
+    private static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exp - LINEAR_BITS) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int b) {
+        if (b < LINEAR) {
+            return b;
+        }
+        int exp = (b - LINEAR) / SUB_BUCKETS + LINEAR_BITS;
+        long sub = (b - LINEAR) % SUB_BUCKETS;
+        return (1L << exp) + (sub << (exp - SUB_BITS));
+    }
+
+    /**
+     * Encodes the histogram as {@code count sum min max bucket:count...}.
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(100);
+        sb.append(count).append(' ').append(sum).append(' ').append(min).append(' ').append(max);
+        for (int b = 0; b < counts.length; b++) {
+            if (counts[b] > 0) {
+                sb.append(' ').append(b).append(':').append(counts[b]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes a histogram encoded by {@link #encode()}.
+     */
+    public static LogHistogram decode(String encoded) {
+        String[] parts = encoded.trim().split(" ");
+        LogHistogram h = new LogHistogram();
+        try {
+            h.count = Long.parseLong(parts[0]);
+            h.sum = Long.parseLong(parts[1]);
+            h.min = Long.parseLong(parts[2]);
+            h.max = Long.parseLong(parts[3]);
+            for (int i = 4; i < parts.length; i++) {
+                int colon = parts[i].indexOf(':');
+                int b = Integer.parseInt(parts[i].substring(0, colon));
+                if (b >= h.counts.length) {
+                    h.counts = Arrays.copyOf(h.counts, b + 1);
+                }
+                h.counts[b] = Long.parseLong(parts[i].substring(colon + 1));
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("invalid histogram: " + encoded, e);
+        }
+        return h;
+    }
+
+}
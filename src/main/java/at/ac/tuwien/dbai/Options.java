@@ -0,0 +1,200 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line options of sql2hg.
+ */
+final class Options {
+
+    static final String USAGE = "Usage: sql2hg [--reduce] [--dedup[=<capacity>]] [--agm] [--stats=<file>]\n"
+            + "              [--orderings] [--core[=<millis>]] [--semijoin] [--split]\n"
+            + "              [--partition=<k> [--imbalance=<percent>]]\n"
+            + "              [--workers=<n>] [--dictionary=<file>] [--report=<file>] [--pipeline]\n"
+            + "              [--mine=<file> [--min-support=<n>]]\n"
+            + "              (<query>... | --watch=<dir>)";
+
+    static final int DEFAULT_DEDUP_CAPACITY = 10000;
+    static final int DEFAULT_CORE_MILLIS = 1000;
+    static final int DEFAULT_IMBALANCE_PERCENT = 10;
+    static final int DEFAULT_MIN_SUPPORT = 2;
+
+    boolean reduce;
+    /** Number of templates kept by the duplicate filter, or 0 if disabled. */
+    int dedupCapacity;
+    boolean agm;
+    boolean orderings;
+    /** Time budget of the query minimisation in milliseconds, or 0 if disabled. */
+    int coreMillis;
+    boolean semijoin;
+    /** Number of parts the relations of a query are partitioned into, or 0 if disabled. */
+    int parts;
+    /** Allowed excess of a part over the average weight, in percent. */
+    int imbalancePercent = -1;
+    boolean split;
+    /** Whether the outputs are written by a separate stage, see {@link OutputWriter}. */
+    boolean pipeline;
+    String statsFile;
+    String watchDir;
+    /** Number of worker processes, or 0 to convert in this process. */
+    int workers;
+    /** Id of this process when it is a worker of a coordinator, or {@code null}. */
+    String workerId;
+    /** Queue directory of the coordinator this worker belongs to. */
+    String queueDir;
+    /** File the workload report is written to. */
+    String reportFile;
+    /** File the shared sub-queries of the workload are written to. */
+    String mineFile;
+    /** Number of queries a sub-query must occur in to be shared. */
+    int minSupport = -1;
+    /** File the column dictionary is loaded from and saved to. */
+    String dictionaryFile;
+    /** The command line the options were parsed from. */
+    List<String> args;
+    List<String> files = new ArrayList<>();
+
+    /** Statistics loaded from {@link #statsFile} before the conversion starts. */
+    TableStatistics stats;
+    /** Dictionary loaded from {@link #dictionaryFile} before the conversion starts. */
+    ColumnDictionary dictionary;
+    /** Report the hypergraphs of the run are added to. */
+    WorkloadReport report;
+    /** Miner the queries of the run are added to. */
+    SubgraphMiner miner;
+    /** Writer of the outputs of a pipelined run. */
+    OutputWriter writer;
+
+    private Options() {
+    }
+
+    /**
+     * Parses the command line.
+     *
+     * @return the options, or {@code null} if the command line is invalid
+     */
+    static Options parse(String[] args) {
+        Options opts = new Options();
+        opts.args = Arrays.asList(args);
+        for (String arg : args) {
+            if ("--reduce".equals(arg)) {
+                opts.reduce = true;
+            } else if ("--dedup".equals(arg)) {
+                opts.dedupCapacity = DEFAULT_DEDUP_CAPACITY;
+            } else if (arg.startsWith("--dedup=")) {
+                opts.dedupCapacity = parsePositive(arg.substring("--dedup=".length()));
+                if (opts.dedupCapacity <= 0) {
+                    return null;
+                }
+            } else if ("--agm".equals(arg)) {
+                opts.agm = true;
+            } else if ("--orderings".equals(arg)) {
+                opts.orderings = true;
+            } else if ("--core".equals(arg)) {
+                opts.coreMillis = DEFAULT_CORE_MILLIS;
+            } else if (arg.startsWith("--core=")) {
+                opts.coreMillis = parsePositive(arg.substring("--core=".length()));
+                if (opts.coreMillis <= 0) {
+                    return null;
+                }
+            } else if ("--semijoin".equals(arg)) {
+                opts.semijoin = true;
+            } else if (arg.startsWith("--partition=")) {
+                opts.parts = parsePositive(arg.substring("--partition=".length()));
+                if (opts.parts <= 0) {
+                    return null;
+                }
+            } else if (arg.startsWith("--imbalance=")) {
+                opts.imbalancePercent = parseNonNegative(arg.substring("--imbalance=".length()));
+                if (opts.imbalancePercent < 0) {
+                    return null;
+                }
+            } else if ("--split".equals(arg)) {
+                opts.split = true;
+            } else if ("--pipeline".equals(arg)) {
+                opts.pipeline = true;
+            } else if (arg.startsWith("--workers=")) {
+                opts.workers = parsePositive(arg.substring("--workers=".length()));
+                if (opts.workers <= 0) {
+                    return null;
+                }
+            } else if (arg.startsWith("--worker=")) {
+                opts.workerId = arg.substring("--worker=".length());
+            } else if (arg.startsWith("--queue=")) {
+                opts.queueDir = arg.substring("--queue=".length());
+            } else if (arg.startsWith("--dictionary=")) {
+                opts.dictionaryFile = arg.substring("--dictionary=".length());
+            } else if (arg.startsWith("--mine=")) {
+                opts.mineFile = arg.substring("--mine=".length());
+            } else if (arg.startsWith("--min-support=")) {
+                opts.minSupport = parsePositive(arg.substring("--min-support=".length()));
+                if (opts.minSupport <= 0) {
+                    return null;
+                }
+            } else if (arg.startsWith("--report=")) {
+                opts.reportFile = arg.substring("--report=".length());
+            } else if (arg.startsWith("--watch=")) {
+                opts.watchDir = arg.substring("--watch=".length());
+            } else if (arg.startsWith("--stats=")) {
+                opts.statsFile = arg.substring("--stats=".length());
+            } else if (arg.startsWith("--")) {
+                return null;
+            } else {
+                opts.files.add(arg);
+            }
+        }
+        // workers in separate processes could not agree on new ids
+        boolean sharded = opts.workers > 0 || opts.workerId != null;
+        if ((opts.workerId == null) != (opts.queueDir == null) || sharded && opts.dictionaryFile != null) {
+            return null;
+        }
+        // templates ignore the literals, on which the core and the selections
+        // of a semi-join program depend
+        if ((opts.coreMillis > 0 || opts.semijoin) && opts.dedupCapacity > 0) {
+            return null;
+        }
+        if (opts.imbalancePercent < 0) {
+            opts.imbalancePercent = DEFAULT_IMBALANCE_PERCENT;
+        } else if (opts.parts == 0) {
+            return null;
+        }
+        if (opts.minSupport < 0) {
+            opts.minSupport = DEFAULT_MIN_SUPPORT;
+        } else if (opts.mineFile == null) {
+            return null;
+        }
+        // the queries of all the workers would have to be mined together, and
+        // the coordinator only shards the files given on the command line
+        if (sharded && (opts.mineFile != null || opts.watchDir != null)) {
+            return null;
+        }
+        // a workload is a batch of queries, and so is a pipeline
+        if ((opts.reportFile != null || opts.mineFile != null || opts.pipeline) && opts.watchDir != null) {
+            return null;
+        }
+        boolean needsFiles = opts.watchDir == null && opts.workerId == null;
+        return opts.files.isEmpty() == needsFiles ? null : opts;
+    }
+
+    /**
+     * Parses a positive integer, returning -1 if it is not one.
+     */
+    static int parsePositive(String value) {
+        try {
+            int n = Integer.parseInt(value);
+            return n > 0 ? n : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a non-negative integer, returning -1 if it is not one.
+     */
+    static int parseNonNegative(String value) {
+        return "0".equals(value) ? 0 : parsePositive(value);
+    }
+
+}
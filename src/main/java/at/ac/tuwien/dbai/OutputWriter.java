@@ -0,0 +1,233 @@
+package at.ac.tuwien.dbai;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Prints and writes the outputs of the queries on a background thread, so that
+ * writing overlaps with the conversion of the next queries.
+ *
+ * <p>
+ * The writer takes all the queries waiting in its queue at once, prints their
+ * console output with a single flush, encodes all their files into one buffer
+ * and then writes every file with a single write. The queue holds at most
+ * {@link #MAX_PENDING_CHARS} characters of output; when the disk cannot keep
+ * up, {@link #submit(String, Map)} blocks until the writer has caught up, so
+ * the memory of a run stays bounded. Once a write fails, the writer stops
+ * writing and the next call fails.
+ */
+public final class OutputWriter implements AutoCloseable {
+
+    private static final int MAX_PENDING_CHARS = 1 << 24;
+    private static final int MAX_BATCH = 256;
+    private static final Pending END = new Pending("", null, 0);
+
+    /**
+     * The outputs of a query waiting to be written.
+     */
+    private static final class Pending {
+        final String console;
+        final Map<String, List<String>> files;
+        final int chars;
+
+        Pending(String console, Map<String, List<String>> files, int chars) {
+            this.console = console;
+            this.files = files;
+            this.chars = chars;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Semaphore budget = new Semaphore(MAX_PENDING_CHARS);
+    /** The writing thread, started by {@link #start()}. */
+    final Thread thread;
+    private volatile Throwable error;
+    /** Encoded files of the batch being written. */
+    private byte[] buffer = new byte[1 << 16];
+    private long batches;
+    private long queries;
+
+    OutputWriter() {
+        thread = new Thread(this::writeAll, "sql2hg-writer");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts writing in the background.
+     */
+    public static OutputWriter start() {
+        OutputWriter writer = new OutputWriter();
+        writer.thread.start();
+        return writer;
+    }
+
+    /**
+     * Queues the outputs of a query, waiting while the queue is full.
+     *
+     * @param console text to print before the files are written
+     * @param files contents of the output files by file name
+     * @throws IOException if an earlier write failed
+     */
+    public void submit(String console, Map<String, List<String>> files) throws IOException {
+        checkError();
+        int chars = console.length();
+        for (List<String> lines : files.values()) {
+            for (String line : lines) {
+                chars += line.length() + 1;
+            }
+        }
+        // an output larger than the whole budget waits for an empty queue
+        chars = Math.min(chars, MAX_PENDING_CHARS);
+        try {
+            budget.acquire(chars);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the writer");
+        }
+        if (error != null) {
+            budget.release(chars);
+            checkError();
+        }
+        queue.add(new Pending(console, files, chars));
+    }
+
+    /**
+     * Waits for all the queued outputs to be written and stops the writer.
+     *
+     * @throws IOException if a write failed
+     */
+    @Override
+    public void close() throws IOException {
+        queue.add(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the writer");
+        }
+        checkError();
+    }
+
+    /**
+     * Returns the number of batches written and the number of queries in them.
+     */
+    public String statistics() {
+        return queries + " queries in " + batches + " batches";
+    }
+
+    private void checkError() throws IOException {
+        Throwable e = error;
+        if (e != null) {
+            throw new IOException("cannot write outputs: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeAll() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        StringBuilder console = new StringBuilder();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                console.setLength(0);
+                boolean end = false;
+                for (Pending p : batch) {
+                    end |= p == END;
+                    console.append(p.console);
+                }
+                System.out.print(console);
+                System.out.flush();
+                try {
+                    write(batch);
+                } finally {
+                    for (Pending p : batch) {
+                        budget.release(p.chars);
+                    }
+                }
+                batches++;
+                batch.clear();
+                if (end) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // the queued outputs are never written, which must not go unnoticed
+            fail(new InterruptedIOException("writer interrupted"));
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        error = e;
+        // wake up the submitters: the next call fails
+        for (Pending p = queue.poll(); p != null; p = queue.poll()) {
+            budget.release(p.chars);
+        }
+        budget.release(MAX_PENDING_CHARS);
+    }
+
+    /**
+     * Encodes the files of a batch into the buffer, one after the other, and
+     * writes each of them with a single write.
+     */
+    private void write(List<Pending> batch) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        int length = 0;
+        byte[] separator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        for (Pending p : batch) {
+            if (p == END) {
+                continue;
+            }
+            for (Map.Entry<String, List<String>> file : p.files.entrySet()) {
+                for (String line : file.getValue()) {
+                    length = append(line.getBytes(StandardCharsets.UTF_8), length);
+                    length = append(separator, length);
+                }
+                names.add(file.getKey());
+                ends.add(length);
+            }
+            queries++;
+        }
+        int start = 0;
+        for (int i = 0; i < names.size(); i++) {
+            Path path = Paths.get(names.get(i));
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer content = ByteBuffer.wrap(buffer, start, ends.get(i) - start);
+                while (content.hasRemaining()) {
+                    out.write(content);
+                }
+            }
+            start = ends.get(i);
+        }
+    }
+
+    private int append(byte[] bytes, int length) {
+        if (length + bytes.length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + bytes.length));
+        }
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        return length + bytes.length;
+    }
+
+}
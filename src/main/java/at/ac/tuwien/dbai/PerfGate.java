@@ -0,0 +1,249 @@
+package at.ac.tuwien.dbai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Performance regression gate. Converts every query of a corpus repeatedly and
+ * compares the cost and the allocated bytes per conversion of each query with
+ * a stored baseline.
+ *
+ * <p>
+ * The cost of a query is not its CPU time, which depends on the machine and
+ * on whatever else runs on it, but the number of iterations of a fixed
+ * calibration loop that run in the CPU time of one conversion. Every round
+ * times the calibration loop right before the query, so both see the same
+ * machine load, and the cost is the median over the rounds. A query that
+ * regresses is measured again, up to three times, and only fails the gate if
+ * it regresses every time.
+ *
+ * <p>
+ * Usage: {@code PerfGate <corpus dir> <baseline file> <tolerance> [update]},
+ * where a tolerance of 0.3 fails when a query costs or allocates more than 30%
+ * more. With {@code update} the baseline is re-recorded instead of checked;
+ * without it, a missing baseline fails the gate.
+ */
+public final class PerfGate {
+
+    private static final long WARMUP_NANOS = 300_000_000L;
+    private static final long ROUND_NANOS = 100_000_000L;
+    private static final int ROUNDS = 7;
+    /** Measurements of a regressed query before the gate fails. */
+    private static final int ATTEMPTS = 3;
+    /** Columns of every table of the calibration loop. */
+    private static final int CALIBRATION_COLUMNS = 64;
+
+    private PerfGate() {
+    }
+
+    /**
+     * Metrics of one corpus query.
+     */
+    static final class Metrics {
+        /** Calibration iterations per conversion. */
+        private final double cost;
+        private final double allocation;
+
+        Metrics(double cost, double allocation) {
+            this.cost = cost;
+            this.allocation = allocation;
+        }
+    }
+
+    /** Keeps the results of the calibration loop alive. */
+    private static long sink;
+
+    public static void main(String[] args) throws IOException, JSQLParserException {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: PerfGate <corpus dir> <baseline file> <tolerance> [update]");
+            System.exit(-1);
+        }
+        Path corpus = Paths.get(args[0]);
+        Path baselineFile = Paths.get(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+        boolean update = args.length == 4 && Boolean.parseBoolean(args[3]);
+
+        List<Path> queries = corpusFiles(corpus);
+        // warm up the whole pipeline first, so the first queries are not measured with a cold JIT
+        calibrateFor(WARMUP_NANOS);
+        for (Path query : queries) {
+            runFor(new String(Files.readAllBytes(query)), WARMUP_NANOS);
+        }
+        // the conversions may have made the JIT recompile the shared code the
+        // calibration loop uses, e.g. HashMap, so run it again before measuring
+        calibrateFor(WARMUP_NANOS);
+        Properties measured = new Properties();
+        for (Path query : queries) {
+            record(measured, query);
+        }
+
+        if (update) {
+            try (OutputStream out = Files.newOutputStream(baselineFile)) {
+                measured.store(out,
+                        "sql2hg performance baseline: calibration iterations and allocated bytes per query");
+            }
+            System.out.println("Baseline written to " + baselineFile);
+            return;
+        }
+
+        if (!Files.exists(baselineFile)) {
+            // a missing baseline would otherwise pass every check it is recorded by
+            System.err.println("No baseline " + baselineFile + ", record one with update");
+            System.exit(1);
+        }
+        Properties baseline = new Properties();
+        try (InputStream in = Files.newInputStream(baselineFile)) {
+            baseline.load(in);
+        }
+        List<String> regressions = compare(baseline, measured, tolerance);
+        // noise from other processes rarely slows a query down every time,
+        // a regression does, so a query fails only if no attempt is in bounds
+        for (int attempt = 1; attempt < ATTEMPTS && !regressions.isEmpty(); attempt++) {
+            for (Path query : queries) {
+                String name = query.getFileName().toString();
+                if (regressions.stream().anyMatch(r -> r.startsWith(name + "."))) {
+                    System.out.println("Measuring " + name + " again");
+                    record(measured, query);
+                }
+            }
+            regressions = compare(baseline, measured, tolerance);
+        }
+        for (String r : regressions) {
+            System.err.println("REGRESSION " + r);
+        }
+        if (!regressions.isEmpty()) {
+            System.exit(1);
+        }
+        System.out.println("No regressions beyond " + Math.round(tolerance * 100) + "% against " + baselineFile);
+    }
+
+    /**
+     * Measures a query and stores its metrics, keeping the lower of each if
+     * it was measured before.
+     */
+    private static void record(Properties measured, Path query) throws IOException, JSQLParserException {
+        String name = query.getFileName().toString();
+        Metrics m = measure(new String(Files.readAllBytes(query)));
+        double cost = Math.min(m.cost, Double.parseDouble(measured.getProperty(name + ".cost", "Infinity")));
+        double allocation = Math.min(m.allocation,
+                Double.parseDouble(measured.getProperty(name + ".allocation", "Infinity")));
+        measured.setProperty(name + ".cost", String.format(Locale.ROOT, "%.3f", cost));
+        measured.setProperty(name + ".allocation", String.format(Locale.ROOT, "%.0f", allocation));
+        System.out.printf(Locale.ROOT, "%-24s %12.3f calibrations/query %12.0f bytes/query%n", name, m.cost,
+                m.allocation);
+    }
+
+    private static List<Path> corpusFiles(Path corpus) throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(corpus, "*.sql")) {
+            for (Path p : dir) {
+                files.add(p);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Runs the full conversion of a query, without writing files, first for a
+     * warm-up period and then for several measurement rounds, each after a
+     * round of the calibration loop. The cost is the median of the rounds,
+     * which is far less sensitive to noise from other processes than the mean.
+     */
+    static Metrics measure(String query) throws JSQLParserException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        runFor(query, WARMUP_NANOS);
+        double[] costs = new double[ROUNDS];
+        long allocated = 0;
+        long runs = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            // start every round with the same heap, so the garbage of earlier
+            // queries is not collected in the time of this one
+            System.gc();
+            long start = threads.getCurrentThreadCpuTime();
+            long calibrations = calibrateFor(ROUND_NANOS);
+            double calibrationNanos = threads.getCurrentThreadCpuTime() - start;
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            start = threads.getCurrentThreadCpuTime();
+            long n = runFor(query, ROUND_NANOS);
+            double queryNanos = threads.getCurrentThreadCpuTime() - start;
+            allocated += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+            runs += n;
+            costs[round] = calibrations / calibrationNanos * (queryNanos / n);
+        }
+        Arrays.sort(costs);
+        return new Metrics(costs[ROUNDS / 2], (double) allocated / runs);
+    }
+
+    /**
+     * Runs the calibration loop for a while: it builds the qualified column
+     * names of a table and looks them up in a map, like a conversion.
+     *
+     * @return the number of iterations
+     */
+    static long calibrateFor(long nanos) {
+        long iterations = 0;
+        long deadline = System.nanoTime() + nanos;
+        do {
+            HashMap<String, Integer> columns = new HashMap<>();
+            String table = "t" + (iterations & 7);
+            for (int c = 0; c < CALIBRATION_COLUMNS; c++) {
+                columns.put(table + ".c" + c, c);
+            }
+            for (int c = 0; c < CALIBRATION_COLUMNS; c++) {
+                sink += columns.get(table + ".c" + (c * 7 % CALIBRATION_COLUMNS));
+            }
+            iterations++;
+        } while (System.nanoTime() < deadline);
+        return iterations;
+    }
+
+    private static long runFor(String query, long nanos) throws JSQLParserException {
+        long runs = 0;
+        long deadline = System.nanoTime() + nanos;
+        do {
+            for (QueryBlocks.Block block : App.convert(query, false).getBlocks()) {
+                block.getBuilder().makeHypergraph();
+                block.getBuilder().getMapping();
+            }
+            runs++;
+        } while (System.nanoTime() < deadline);
+        return runs;
+    }
+
+    static List<String> compare(Properties baseline, Properties measured, double tolerance) {
+        ArrayList<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(measured.stringPropertyNames())) {
+            String expected = baseline.getProperty(key);
+            if (expected == null) {
+                System.out.println("No baseline for " + key);
+                continue;
+            }
+            double base = Double.parseDouble(expected);
+            double now = Double.parseDouble(measured.getProperty(key));
+            if (now > base * (1 + tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %s, baseline %s", key, measured.getProperty(key), expected));
+            }
+        }
+        return regressions;
+    }
+
+}
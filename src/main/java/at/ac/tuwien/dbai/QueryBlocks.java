@@ -0,0 +1,244 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import at.ac.tuwien.dbai.App.Equality;
+import at.ac.tuwien.dbai.App.Filter;
+import at.ac.tuwien.dbai.App.Selection;
+
+/**
+ * The query blocks of a statement, each with its own hypergraph: the main
+ * query, every CTE, derived table and subquery, and every branch of a set
+ * operation. A block that refers to another block, e.g. a query reading a
+ * CTE, depends on it; the referring block has an edge named after the CTE or
+ * the alias of the derived table, with the columns it uses.
+ *
+ * <p>
+ * The blocks are converted level by level, each level holding the blocks
+ * whose dependencies are in earlier levels, and the blocks of a level are
+ * independent of each other and converted in parallel.
+ */
+public final class QueryBlocks {
+
+    /** Name of the block of the outermost query. */
+    public static final String MAIN = "main";
+
+    /**
+     * A query block: its tables, joins and selections as found in the
+     * statement, and the hypergraph built from them.
+     */
+    public static final class Block {
+        private final String name;
+        private final Block parent;
+        final LinkedHashMap<String, String> tables = new LinkedHashMap<>();
+        /** Atoms that read another block, a CTE or a derived table. */
+        final Set<String> blockAtoms = new HashSet<>();
+        final List<Equality> joins = new ArrayList<>();
+        final List<Selection> selections = new ArrayList<>();
+        final List<Filter> filters = new ArrayList<>();
+        /** Output columns of every atom, {@code *} for all of them. */
+        final LinkedHashMap<String, Set<String>> outputs = new LinkedHashMap<>();
+        /** Whether the result is a set, see {@link HypergraphBuilder#buildDistinct()}. */
+        boolean distinct;
+        /** Whether the block has an outer join. */
+        boolean outerJoin;
+        /** Whether the block refers to columns of an enclosing block. */
+        boolean correlated;
+        final LinkedHashSet<String> dependencies = new LinkedHashSet<>();
+        private HypergraphBuilder builder;
+
+        Block(String name, Block parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the block this block is nested in, or {@code null}.
+         */
+        public Block getParent() {
+            return parent;
+        }
+
+        /**
+         * Returns the names of the blocks this block refers to.
+         */
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        public Map<String, String> getTables() {
+            return tables;
+        }
+
+        public List<Equality> getJoins() {
+            return joins;
+        }
+
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        public HypergraphBuilder getBuilder() {
+            return builder;
+        }
+
+        private HypergraphBuilder build(ColumnDictionary dict) {
+            HypergraphBuilder b = dict != null ? new HypergraphBuilder(dict) : new HypergraphBuilder();
+            for (Map.Entry<String, String> t : tables.entrySet()) {
+                if (blockAtoms.contains(t.getKey())) {
+                    b.buildBlockAtom(t.getKey(), t.getValue());
+                } else {
+                    b.buildAtom(t.getKey(), t.getValue());
+                }
+            }
+            for (Equality eq : joins) {
+                b.buildEdge(eq.leftTable, eq.leftCol);
+                b.buildEdge(eq.rightTable, eq.rightCol);
+                b.buildJoin(eq);
+            }
+            for (Selection sel : selections) {
+                b.buildSelection(sel.table, sel.col, sel.value);
+            }
+            for (Filter f : filters) {
+                b.buildFilter(f.condition, f.atoms);
+            }
+            for (Map.Entry<String, Set<String>> output : outputs.entrySet()) {
+                for (String col : output.getValue()) {
+                    b.buildOutput(output.getKey(), col);
+                }
+            }
+            if (distinct) {
+                b.buildDistinct();
+            }
+            if (outerJoin) {
+                b.buildOuterJoin();
+            }
+            if (correlated) {
+                b.buildCorrelation();
+            }
+            return b;
+        }
+    }
+
+    private final List<Block> blocks;
+    private final List<List<Block>> levels;
+
+    private QueryBlocks(List<Block> blocks, List<List<Block>> levels) {
+        this.blocks = blocks;
+        this.levels = levels;
+    }
+
+    /**
+     * Builds the hypergraphs of the blocks of a statement.
+     *
+     * @param dict dictionary of the run naming the variables, or {@code null}
+     */
+    static QueryBlocks build(List<Block> blocks, ColumnDictionary dict) {
+        List<List<Block>> levels = levels(blocks);
+        for (List<Block> level : levels) {
+            level.parallelStream().forEach(b -> b.builder = b.build(dict));
+        }
+        return new QueryBlocks(blocks, levels);
+    }
+
+    /**
+     * Orders the blocks into levels. A block is in the level after the last
+     * level of its dependencies; blocks on a cycle of dependencies, e.g.
+     * recursive CTEs, are put in a last level.
+     */
+    private static List<List<Block>> levels(List<Block> blocks) {
+        List<List<Block>> levels = new ArrayList<>();
+        HashSet<String> done = new HashSet<>();
+        List<Block> pending = new ArrayList<>(blocks);
+        while (!pending.isEmpty()) {
+            List<Block> level = new ArrayList<>();
+            List<Block> rest = new ArrayList<>();
+            for (Block b : pending) {
+                (done.containsAll(b.dependencies) ? level : rest).add(b);
+            }
+            if (level.isEmpty()) {
+                level = rest;
+                rest = new ArrayList<>();
+            }
+            for (Block b : level) {
+                done.add(b.name);
+            }
+            levels.add(level);
+            pending = rest;
+        }
+        return levels;
+    }
+
+    /**
+     * Returns the blocks in the order they were found, the outermost first.
+     */
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the blocks grouped into levels of independent blocks, each
+     * level only depending on earlier ones.
+     */
+    public List<List<Block>> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Returns the block of the outermost query, or {@code null} if it is a set
+     * operation.
+     */
+    public Block getMain() {
+        for (Block b : blocks) {
+            if (MAIN.equals(b.name)) {
+                return b;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Formats the dependency graph, one {@code <block>: <dependency>...} line
+     * per block, level by level.
+     */
+    public List<String> dependencyLines() {
+        ArrayList<String> lines = new ArrayList<>(blocks.size());
+        for (List<Block> level : levels) {
+            for (Block b : level) {
+                StringBuilder sb = new StringBuilder(b.name).append(':');
+                for (String dep : b.dependencies) {
+                    sb.append(' ').append(dep);
+                }
+                lines.add(sb.toString());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Generates unique block names.
+     */
+    static final class Names {
+        private final HashSet<String> used = new HashSet<>();
+
+        String unique(String preferred) {
+            String base = preferred.replaceAll("[^A-Za-z0-9_]", "_");
+            String name = base;
+            for (int n = 1; !used.add(name); n++) {
+                name = base + "_" + n;
+            }
+            return name;
+        }
+    }
+
+}
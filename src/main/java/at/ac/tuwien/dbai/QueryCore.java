@@ -0,0 +1,559 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Core of the conjunctive query a hypergraph was built from, the smallest
+ * subquery the query has a homomorphism to and that is thus equivalent to it.
+ * Atoms that are not in the core, e.g. redundant self-joins, can be removed
+ * from the query.
+ *
+ * <p>
+ * The atoms are the edges, i.e. the occurrences of the tables, and their
+ * arguments are the variables of their columns, or literals for columns
+ * selected with one. The columns of a table that an occurrence does not
+ * mention are distinct variables.
+ *
+ * <p>
+ * A query is only equivalent to a subquery if its result is a set of rows of
+ * its output columns, i.e. a {@code SELECT DISTINCT} of columns: otherwise
+ * how often a row occurs depends on every atom, and the query is not
+ * minimised. The variables of the output columns are mapped to themselves,
+ * and an atom with all its columns in the output, or one no other atom
+ * mentions, only to itself. So is an atom with a filter other than an
+ * equality, e.g. {@code r.a < 5}, and a query with an outer join is not
+ * minimised at all.
+ *
+ * <p>
+ * The core is found by removing one atom at a time: an atom can be removed if
+ * there is a homomorphism from the query to the query without it. The search
+ * for a homomorphism first makes the candidate targets of the atoms arc
+ * consistent: a target is dropped unless every atom sharing a variable with
+ * the atom has a target agreeing on it. It then maps one atom at a time to a
+ * candidate, always the atom with the fewest compatible candidates left, and
+ * backtracks as soon as an atom has none. Once the time budget is exhausted,
+ * the search stops and the query minimised so far, which is still
+ * equivalent, is returned.
+ */
+public final class QueryCore {
+
+    private final Hypergraph core;
+    private final Map<String, String> removed;
+    private final int atoms;
+    private final boolean complete;
+    /** Why the query is not minimised, or {@code null}. */
+    private final String skipped;
+
+    private QueryCore(Hypergraph core, Map<String, String> removed, int atoms, boolean complete, String skipped) {
+        this.core = core;
+        this.removed = removed;
+        this.atoms = atoms;
+        this.complete = complete;
+        this.skipped = skipped;
+    }
+
+    /**
+     * Returns the hypergraph of the minimised query.
+     */
+    public Hypergraph getCore() {
+        return core;
+    }
+
+    /**
+     * Returns every removed atom with the atom of the core it is mapped to.
+     */
+    public Map<String, String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns whether the minimised query is the core, i.e. whether the time
+     * budget was enough.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns why the query is not minimised, {@code not DISTINCT} or
+     * {@code outer join}, or {@code null} if it is.
+     */
+    public String getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Formats the result as {@code atoms=<n>}, {@code core=<n>},
+     * {@code complete=<true|false>}, {@code skipped=<reason>} if the query is
+     * not minimised, and a {@code removed <atom> -> <atom>} line per removed
+     * atom.
+     */
+    public List<String> reportLines() {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("atoms=" + atoms);
+        lines.add("core=" + core.edgeCount());
+        lines.add("complete=" + complete);
+        if (skipped != null) {
+            lines.add("skipped=" + skipped);
+        }
+        for (Map.Entry<String, String> atom : removed.entrySet()) {
+            lines.add("removed " + atom.getKey() + " -> " + atom.getValue());
+        }
+        return lines;
+    }
+
+    /**
+     * Minimises the query of a builder.
+     *
+     * @param budgetMillis time after which the minimisation stops
+     */
+    public static QueryCore compute(HypergraphBuilder builder, long budgetMillis) {
+        Hypergraph h = builder.toHypergraph();
+        if (builder.hasOuterJoin()) {
+            return new QueryCore(h, new LinkedHashMap<>(), h.edgeCount(), true, "outer join");
+        }
+        if (!builder.isDistinct()) {
+            return new QueryCore(h, new LinkedHashMap<>(), h.edgeCount(), true, "not DISTINCT");
+        }
+        Search search = new Search(builder, h, System.nanoTime() + budgetMillis * 1_000_000);
+        int n = h.edgeCount();
+        BitSet alive = new BitSet(n);
+        alive.set(0, n);
+        int[] folded = new int[n];
+        boolean changed = true;
+        while (changed && !search.timedOut) {
+            changed = false;
+            for (int a = alive.previousSetBit(n - 1); a >= 0; a = alive.previousSetBit(a - 1)) {
+                if (!search.hasOtherAtom(alive, a)) {
+                    continue;
+                }
+                int[] image = search.homomorphism(alive, a);
+                if (search.timedOut) {
+                    break;
+                }
+                if (image != null) {
+                    BitSet kept = new BitSet(n);
+                    for (int s = alive.nextSetBit(0); s >= 0; s = alive.nextSetBit(s + 1)) {
+                        kept.set(image[s]);
+                    }
+                    for (int s = alive.nextSetBit(0); s >= 0; s = alive.nextSetBit(s + 1)) {
+                        if (!kept.get(s)) {
+                            folded[s] = image[s];
+                        }
+                    }
+                    alive = kept;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        LinkedHashMap<String, String> removed = new LinkedHashMap<>();
+        for (int a = 0; a < n; a++) {
+            if (!alive.get(a)) {
+                int target = folded[a];
+                while (!alive.get(target)) {
+                    target = folded[target];
+                }
+                removed.put(h.edgeName(a), h.edgeName(target));
+            }
+        }
+        return new QueryCore(h.subHypergraph(alive), removed, n, !search.timedOut, null);
+    }
+
+    /**
+     * Backtracking search for homomorphisms between subsets of the atoms.
+     */
+    private static final class Search {
+
+        private static final int CHECK_INTERVAL = 1024;
+        /** Prefix of the column that pins an atom with a filter to itself. */
+        private static final String PINNED = "#";
+
+        /** Relation of every atom. */
+        private final int[] relation;
+        /** Arguments of every atom, one per column of its table. */
+        private final int[][] args;
+        /** Whether an atom has a term in several columns, e.g. for r.a = r.b. */
+        private final boolean[] repeats;
+        /** The atoms every atom shares variables with. */
+        private final int[][] neighbours;
+        /**
+         * For every atom and neighbour, the pairs of columns of the atom and
+         * the neighbour with a shared variable.
+         */
+        private final int[][][] shared;
+        private final boolean[] isConstant;
+        /** Image of every term, or -1. */
+        private final int[] image;
+        /** Terms bound since the search started, to undo the bindings. */
+        private final int[] trail;
+        private int trailSize;
+        private final long deadline;
+        private long nodes;
+        boolean timedOut;
+
+        Search(HypergraphBuilder builder, Hypergraph h, long deadline) {
+            this.deadline = deadline;
+            int n = h.edgeCount();
+            relation = new int[n];
+            args = new int[n][];
+            repeats = new boolean[n];
+
+            HashMap<String, Integer> relationIds = new HashMap<>();
+            List<HashMap<String, Integer>> columns = new ArrayList<>();
+            HashMap<String, String> classConstants = new HashMap<>();
+            // output variables are mapped to themselves, like constants
+            HashSet<String> outputVars = new HashSet<>();
+            for (int a = 0; a < n; a++) {
+                String atom = h.edgeName(a);
+                relation[a] = relationIds.computeIfAbsent(builder.getRelation(atom), k -> relationIds.size());
+                if (relation[a] == columns.size()) {
+                    columns.add(new HashMap<>());
+                }
+                HashMap<String, Integer> cols = columns.get(relation[a]);
+                Map<String, String> terms = builder.getTerms(atom);
+                for (String col : terms.keySet()) {
+                    cols.putIfAbsent(col, cols.size());
+                }
+                boolean pinned = builder.isFiltered(atom);
+                for (String out : builder.getOutputs(atom)) {
+                    if (terms.containsKey(out)) {
+                        outputVars.add(terms.get(out));
+                    } else if (!builder.getSelections(atom).containsKey(out)) {
+                        // all the columns, or one only this atom mentions
+                        pinned = true;
+                    }
+                }
+                if (pinned) {
+                    // a column only this atom has, with a constant
+                    cols.putIfAbsent(PINNED + atom, cols.size());
+                }
+                for (Map.Entry<String, Set<String>> sel : builder.getSelections(atom).entrySet()) {
+                    cols.putIfAbsent(sel.getKey(), cols.size());
+                    String var = terms.get(sel.getKey());
+                    if (var != null) {
+                        // the whole class of the column equals the literals
+                        classConstants.merge(var, String.join(" and ", sel.getValue()),
+                                (x, y) -> x.equals(y) ? x : x + " and " + y);
+                    }
+                }
+            }
+
+            HashMap<String, Integer> termIds = new HashMap<>();
+            ArrayList<Boolean> constant = new ArrayList<>();
+            for (int a = 0; a < n; a++) {
+                String atom = h.edgeName(a);
+                HashMap<String, Integer> cols = columns.get(relation[a]);
+                Map<String, String> terms = builder.getTerms(atom);
+                Map<String, Set<String>> selections = builder.getSelections(atom);
+                args[a] = new int[cols.size()];
+                for (Map.Entry<String, Integer> col : cols.entrySet()) {
+                    String var = terms.get(col.getKey());
+                    String literal = var != null ? classConstants.get(var)
+                            : selections.containsKey(col.getKey()) ? String.join(" and ", selections.get(col.getKey()))
+                                    : null;
+                    if (col.getKey().equals(PINNED + atom)) {
+                        literal = col.getKey();
+                    }
+                    String key;
+                    if (literal != null) {
+                        key = "=" + literal;
+                    } else if (var != null) {
+                        key = var;
+                    } else {
+                        // a column the atom does not mention
+                        key = "_" + a + "." + col.getKey();
+                    }
+                    Integer id = termIds.get(key);
+                    if (id == null) {
+                        id = termIds.size();
+                        termIds.put(key, id);
+                        constant.add(literal != null || var != null && outputVars.contains(var));
+                    }
+                    args[a][col.getValue()] = id;
+                }
+                repeats[a] = Arrays.stream(args[a]).distinct().count() < args[a].length;
+            }
+            isConstant = new boolean[constant.size()];
+            for (int t = 0; t < isConstant.length; t++) {
+                isConstant[t] = constant.get(t);
+            }
+            image = new int[isConstant.length];
+            trail = new int[isConstant.length];
+
+            ArrayList<ArrayList<int[]>> occurrences = new ArrayList<>();
+            for (int t = 0; t < isConstant.length; t++) {
+                occurrences.add(new ArrayList<>());
+            }
+            for (int a = 0; a < n; a++) {
+                for (int i = 0; i < args[a].length; i++) {
+                    if (!isConstant[args[a][i]]) {
+                        occurrences.get(args[a][i]).add(new int[] {a, i});
+                    }
+                }
+            }
+            List<LinkedHashMap<Integer, ArrayList<Integer>>> pairs = new ArrayList<>();
+            for (int a = 0; a < n; a++) {
+                pairs.add(new LinkedHashMap<>());
+            }
+            for (ArrayList<int[]> occ : occurrences) {
+                for (int[] x : occ) {
+                    for (int[] y : occ) {
+                        if (x[0] != y[0]) {
+                            ArrayList<Integer> cols = pairs.get(x[0]).computeIfAbsent(y[0], k -> new ArrayList<>());
+                            cols.add(x[1]);
+                            cols.add(y[1]);
+                        }
+                    }
+                }
+            }
+            neighbours = new int[n][];
+            shared = new int[n][][];
+            for (int a = 0; a < n; a++) {
+                LinkedHashMap<Integer, ArrayList<Integer>> p = pairs.get(a);
+                neighbours[a] = new int[p.size()];
+                shared[a] = new int[p.size()][];
+                int k = 0;
+                for (Map.Entry<Integer, ArrayList<Integer>> entry : p.entrySet()) {
+                    neighbours[a][k] = entry.getKey();
+                    shared[a][k] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                    k++;
+                }
+            }
+        }
+
+        /**
+         * Returns whether another alive atom has the same table as an atom,
+         * which is needed to map the atom elsewhere.
+         */
+        boolean hasOtherAtom(BitSet alive, int a) {
+            for (int t = alive.nextSetBit(0); t >= 0; t = alive.nextSetBit(t + 1)) {
+                if (t != a && relation[t] == relation[a]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Searches a homomorphism from the alive atoms to the alive atoms other
+         * than an excluded one.
+         *
+         * @return the image of every alive atom, or {@code null} if there is
+         *         none or the time budget is exhausted
+         */
+        int[] homomorphism(BitSet alive, int excluded) {
+            Arrays.fill(image, -1);
+            trailSize = 0;
+            BitSet[] candidates = new BitSet[relation.length];
+            for (int s = alive.nextSetBit(0); s >= 0; s = alive.nextSetBit(s + 1)) {
+                candidates[s] = new BitSet();
+                for (int t = alive.nextSetBit(0); t >= 0; t = alive.nextSetBit(t + 1)) {
+                    if (t != excluded && relation[t] == relation[s] && compatible(s, t)) {
+                        candidates[s].set(t);
+                    }
+                }
+            }
+            if (!makeArcConsistent(alive, candidates)) {
+                return null;
+            }
+            int[] atomImage = new int[relation.length];
+            return extend((BitSet) alive.clone(), candidates, atomImage) ? atomImage : null;
+        }
+
+        /**
+         * Drops the candidates of an atom that disagree on a shared variable
+         * with all the candidates of a neighbour, until no more can be dropped.
+         *
+         * @return whether every atom has candidates left
+         */
+        private boolean makeArcConsistent(BitSet alive, BitSet[] candidates) {
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            BitSet queued = (BitSet) alive.clone();
+            for (int s = alive.nextSetBit(0); s >= 0; s = alive.nextSetBit(s + 1)) {
+                if (candidates[s].isEmpty()) {
+                    return false;
+                }
+                queue.add(s);
+            }
+            while (!queue.isEmpty()) {
+                if (System.nanoTime() > deadline) {
+                    timedOut = true;
+                    return false;
+                }
+                int y = queue.poll();
+                queued.clear(y);
+                for (int k = 0; k < neighbours[y].length; k++) {
+                    int x = neighbours[y][k];
+                    if (!alive.get(x)) {
+                        continue;
+                    }
+                    int[] cols = shared[y][k];
+                    boolean changed = false;
+                    BitSet dx = candidates[x];
+                    Supports supports = new Supports(cols, candidates[y]);
+                    for (int t = dx.nextSetBit(0); t >= 0; t = dx.nextSetBit(t + 1)) {
+                        if (!supports.contains(t)) {
+                            dx.clear(t);
+                            changed = true;
+                        }
+                    }
+                    if (changed) {
+                        if (dx.isEmpty()) {
+                            return false;
+                        }
+                        if (!queued.get(x)) {
+                            queued.set(x);
+                            queue.add(x);
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Values the candidates of an atom y take on the variables it shares
+         * with a neighbour x, given as pairs of columns of y and x, so that the
+         * candidates of x can be checked against them in constant time.
+         */
+        private final class Supports {
+
+            private final int[] cols;
+            private final BitSet single;
+            private final HashSet<List<Integer>> tuples;
+
+            Supports(int[] cols, BitSet candidatesOfY) {
+                this.cols = cols;
+                if (cols.length == 2) {
+                    single = new BitSet();
+                    tuples = null;
+                    for (int u = candidatesOfY.nextSetBit(0); u >= 0; u = candidatesOfY.nextSetBit(u + 1)) {
+                        single.set(args[u][cols[0]]);
+                    }
+                } else {
+                    single = null;
+                    tuples = new HashSet<>();
+                    for (int u = candidatesOfY.nextSetBit(0); u >= 0; u = candidatesOfY.nextSetBit(u + 1)) {
+                        tuples.add(project(u, 0));
+                    }
+                }
+            }
+
+            /**
+             * Returns whether a candidate of x agrees with a candidate of y.
+             */
+            boolean contains(int t) {
+                return single != null ? single.get(args[t][cols[1]]) : tuples.contains(project(t, 1));
+            }
+
+            private List<Integer> project(int atom, int offset) {
+                ArrayList<Integer> values = new ArrayList<>(cols.length / 2);
+                for (int p = offset; p < cols.length; p += 2) {
+                    values.add(args[atom][cols[p]]);
+                }
+                return values;
+            }
+
+        }
+
+        private boolean extend(BitSet unassigned, BitSet[] candidates, int[] atomImage) {
+            if (unassigned.isEmpty()) {
+                return true;
+            }
+            if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+            }
+            if (timedOut) {
+                return false;
+            }
+            // the atom with the fewest compatible targets
+            int best = -1;
+            int bestCount = Integer.MAX_VALUE;
+            for (int s = unassigned.nextSetBit(0); s >= 0; s = unassigned.nextSetBit(s + 1)) {
+                int count = 0;
+                BitSet targets = candidates[s];
+                for (int t = targets.nextSetBit(0); t >= 0 && count < bestCount; t = targets.nextSetBit(t + 1)) {
+                    if (compatible(s, t)) {
+                        count++;
+                    }
+                }
+                if (count < bestCount) {
+                    best = s;
+                    bestCount = count;
+                    if (count == 0) {
+                        return false;
+                    }
+                }
+            }
+
+            unassigned.clear(best);
+            BitSet targets = candidates[best];
+            for (int t = targets.nextSetBit(0); t >= 0; t = targets.nextSetBit(t + 1)) {
+                if (!compatible(best, t)) {
+                    continue;
+                }
+                int mark = trailSize;
+                bind(best, t);
+                atomImage[best] = t;
+                if (extend(unassigned, candidates, atomImage)) {
+                    return true;
+                }
+                while (trailSize > mark) {
+                    image[trail[--trailSize]] = -1;
+                }
+                if (timedOut) {
+                    break;
+                }
+            }
+            unassigned.set(best);
+            return false;
+        }
+
+        private boolean compatible(int s, int t) {
+            int[] from = args[s];
+            int[] to = args[t];
+            for (int i = 0; i < from.length; i++) {
+                int term = from[i];
+                if (isConstant[term] ? term != to[i] : image[term] >= 0 && image[term] != to[i]) {
+                    return false;
+                }
+            }
+            if (!repeats[s]) {
+                return true;
+            }
+            // a term occurring twice in s must have the same image twice
+            for (int i = 0; i < from.length; i++) {
+                for (int j = i + 1; j < from.length; j++) {
+                    if (from[i] == from[j] && to[i] != to[j]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void bind(int s, int t) {
+            int[] from = args[s];
+            int[] to = args[t];
+            for (int i = 0; i < from.length; i++) {
+                if (!isConstant[from[i]] && image[from[i]] < 0) {
+                    image[from[i]] = to[i];
+                    trail[trailSize++] = from[i];
+                }
+            }
+        }
+
+    }
+
+}
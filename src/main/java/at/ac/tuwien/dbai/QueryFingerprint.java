@@ -0,0 +1,213 @@
+package at.ac.tuwien.dbai;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lexical fingerprint of a SQL query template. String and numeric literals are
+ * replaced by {@code ?}, comments are dropped, runs of whitespace are collapsed
+ * and keywords are lower-cased, so queries that only differ in their literals
+ * get the same fingerprint. Identifiers keep their case: a duplicate reuses
+ * the hypergraph of the first query of its template, which is named after
+ * that query's aliases and columns.
+ *
+ * <p>
+ * The fingerprint is a 64-bit FNV-1a hash together with a second, independent
+ * 64-bit check hash, both computed in a single pass over the raw bytes,
+ * without decoding or tokenising the query. The check tells apart templates
+ * whose hashes collide.
+ */
+public final class QueryFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long CHECK_MULTIPLIER = 0x9e3779b97f4a7c15L;
+    private static final byte[][] KEYWORDS = keywords("all", "and", "as", "asc", "between", "by", "case",
+            "cross", "desc", "distinct", "else", "end", "except", "exists", "false", "fetch", "first", "from",
+            "full", "group", "having", "in", "inner", "intersect", "is", "join", "left", "like", "limit",
+            "natural", "not", "null", "offset", "on", "or", "order", "outer", "right", "rows", "select", "then",
+            "true", "union", "using", "when", "where", "with");
+
+    private long hash = FNV_OFFSET;
+    private long check;
+    private boolean pendingSpace;
+    private boolean emitted;
+
+    private QueryFingerprint() {
+    }
+
+    /** A fingerprint with the given hashes, e.g. to test collisions. */
+    QueryFingerprint(long hash, long check) {
+        this.hash = hash;
+        this.check = check;
+    }
+
+    public static QueryFingerprint of(byte[] query) {
+        QueryFingerprint fp = new QueryFingerprint();
+        int n = query.length;
+        int i = 0;
+        while (i < n) {
+            byte b = query[i];
+            if (isSpace(b)) {
+                fp.pendingSpace = true;
+                i++;
+            } else if (b == '-' && i + 1 < n && query[i + 1] == '-') {
+                i = skipLineComment(query, i);
+                fp.pendingSpace = true;
+            } else if (b == '/' && i + 1 < n && query[i + 1] == '*') {
+                i = skipBlockComment(query, i);
+                fp.pendingSpace = true;
+            } else if (b == '\'') {
+                i = skipString(query, i);
+                fp.emit('?');
+            } else if (b == '"' || b == '`') {
+                i = fp.emitQuoted(query, i);
+            } else if (isDigit(b) && (i == 0 || !isIdentifierPart(query[i - 1]))) {
+                i = skipNumber(query, i);
+                fp.emit('?');
+            } else if (isIdentifierPart(b)) {
+                i = fp.emitWord(query, i);
+            } else {
+                fp.emit(b);
+                i++;
+            }
+        }
+        return fp;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public long getCheck() {
+        return check;
+    }
+
+    private void emit(int b) {
+        if (pendingSpace && emitted) {
+            mix(' ');
+        }
+        pendingSpace = false;
+        emitted = true;
+        mix(b);
+    }
+
+    private void mix(int b) {
+        hash ^= b & 0xff;
+        hash *= FNV_PRIME;
+        check = (check + (b & 0xff) + 1) * CHECK_MULTIPLIER;
+        check ^= check >>> 29;
+    }
+
+    /** Emits a keyword in lower case and any other word verbatim. */
+    private int emitWord(byte[] query, int start) {
+        int end = start;
+        while (end < query.length && isIdentifierPart(query[end])) {
+            end++;
+        }
+        boolean keyword = isKeyword(query, start, end);
+        for (int i = start; i < end; i++) {
+            emit(keyword ? toLower(query[i]) : query[i]);
+        }
+        return end;
+    }
+
+    private static boolean isKeyword(byte[] query, int start, int end) {
+        for (byte[] keyword : KEYWORDS) {
+            if (keyword.length == end - start) {
+                int i = 0;
+                while (i < keyword.length && toLower(query[start + i]) == keyword[i]) {
+                    i++;
+                }
+                if (i == keyword.length) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[][] keywords(String... words) {
+        byte[][] bytes = new byte[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            bytes[i] = words[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+
+    /** Quoted identifiers are kept verbatim, including their case. */
+    private int emitQuoted(byte[] query, int start) {
+        byte quote = query[start];
+        emit(quote);
+        int i = start + 1;
+        while (i < query.length && query[i] != quote) {
+            mix(query[i++]);
+        }
+        if (i < query.length) {
+            mix(quote);
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipLineComment(byte[] query, int start) {
+        int i = start + 2;
+        while (i < query.length && query[i] != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipBlockComment(byte[] query, int start) {
+        int i = start + 2;
+        while (i + 1 < query.length && !(query[i] == '*' && query[i + 1] == '/')) {
+            i++;
+        }
+        return Math.min(i + 2, query.length);
+    }
+
+    /** Skips a string literal, where {@code ''} is an escaped quote. */
+    private static int skipString(byte[] query, int start) {
+        int i = start + 1;
+        while (i < query.length) {
+            if (query[i] == '\'') {
+                if (i + 1 < query.length && query[i + 1] == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipNumber(byte[] query, int start) {
+        int i = start;
+        while (i < query.length) {
+            byte b = query[i];
+            boolean exponentSign = (b == '+' || b == '-') && (query[i - 1] == 'e' || query[i - 1] == 'E');
+            if (!isDigit(b) && b != '.' && b != 'e' && b != 'E' && !exponentSign) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isIdentifierPart(byte b) {
+        return isDigit(b) || b == '_' || b == '$' || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b < 0;
+    }
+
+    private static int toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+}
@@ -0,0 +1,333 @@
+package at.ac.tuwien.dbai;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads query files on a background thread, so that reading and decompressing
+ * the input overlaps with the conversion.
+ *
+ * <p>
+ * Besides plain query files, gzip-compressed files ({@code .gz}), tar bundles
+ * ({@code .tar}) and compressed tar bundles ({@code .tar.gz}, {@code .tgz}) are
+ * read as streams; only the {@code .sql} entries of a bundle are returned.
+ */
+public final class QueryReader {
+
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int TAR_BLOCK = 512;
+    private static final QueryFile END = new QueryFile(null, null, null);
+
+    /**
+     * A query read from the input, or the error that prevented reading it.
+     */
+    public static final class QueryFile {
+        private final String name;
+        private final byte[] content;
+        private final IOException error;
+
+        QueryFile(String name, byte[] content, IOException error) {
+            this.name = name;
+            this.content = content;
+            this.error = error;
+        }
+
+        /**
+         * Returns the file name, or {@code bundle/entry} for an entry of a tar
+         * bundle.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Returns the error that occurred while reading, or {@code null}.
+         */
+        public IOException getError() {
+            return error;
+        }
+    }
+
+    private final BlockingQueue<QueryFile> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+
+    private QueryReader(List<String> files) {
+        thread = new Thread(() -> readAll(files), "sql2hg-reader");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts reading the given files in the background.
+     */
+    public static QueryReader start(List<String> files) {
+        QueryReader reader = new QueryReader(files);
+        reader.thread.start();
+        return reader;
+    }
+
+    /**
+     * Returns the next query, waiting for it to be read, or {@code null} when
+     * all the files have been read.
+     */
+    public QueryFile next() throws InterruptedIOException {
+        try {
+            QueryFile q = queue.take();
+            if (q == END) {
+                queue.put(END);
+                return null;
+            }
+            return q;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for input");
+        }
+    }
+
+    private void readAll(List<String> files) {
+        try {
+            for (String file : files) {
+                try {
+                    read(file);
+                } catch (IOException e) {
+                    queue.put(new QueryFile(file, null, e));
+                }
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void read(String file) throws IOException, InterruptedException {
+        String lower = file.toLowerCase(Locale.ROOT);
+        boolean gzip = lower.endsWith(".gz") || lower.endsWith(".tgz");
+        boolean tar = isBundle(lower);
+        try (InputStream in = open(file, gzip)) {
+            if (tar) {
+                readTar(file, in);
+            } else {
+                String name = gzip ? file.substring(0, file.length() - ".gz".length()) : file;
+                queue.put(new QueryFile(name, readAllBytes(in), null));
+            }
+        }
+    }
+
+    private static boolean isBundle(String lower) {
+        return lower.endsWith(".tar") || lower.endsWith(".tar.gz") || lower.endsWith(".tgz");
+    }
+
+    /**
+     * Returns the path of an entry within its bundle, given the name of its
+     * {@link QueryFile}, or {@code null} if the name is not that of an entry.
+     */
+    static String entryName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (int slash = lower.indexOf('/'); slash >= 0; slash = lower.indexOf('/', slash + 1)) {
+            if (isBundle(lower.substring(0, slash))) {
+                return name.substring(slash + 1);
+            }
+        }
+        return null;
+    }
+
+    private static InputStream open(String file, boolean gzip) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(file)), BUFFER_SIZE);
+        return gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+    }
+
+    /**
+     * Reads the {@code .sql} entries of a ustar, GNU or pax tar stream. The
+     * name of an entry may come from a preceding GNU long name ({@code L})
+     * or pax ({@code x}) header, and its size from the pax header.
+     */
+    private void readTar(String bundle, InputStream in) throws IOException, InterruptedException {
+        byte[] header = new byte[TAR_BLOCK];
+        String longName = null;
+        long paxSize = -1;
+        while (readBlock(in, header)) {
+            if (header[0] == 0) {
+                return;
+            }
+            long size = paxSize >= 0 ? paxSize : parseOctal(header, 124, 12);
+            byte type = header[156];
+            byte[] data = null;
+            String name = longName != null ? longName : tarName(header);
+            longName = null;
+            paxSize = -1;
+            boolean extension = type == 'L' || type == 'x';
+            if (extension || (type == '0' || type == 0) && name.toLowerCase(Locale.ROOT).endsWith(".sql")) {
+                data = readExactly(in, size);
+            } else {
+                skipFully(in, size);
+            }
+            skipFully(in, (TAR_BLOCK - size % TAR_BLOCK) % TAR_BLOCK);
+            if (type == 'L') {
+                longName = trimNul(data);
+            } else if (type == 'x') {
+                Map<String, String> pax = paxRecords(data);
+                longName = pax.get("path");
+                if (pax.containsKey("size")) {
+                    paxSize = parseSize(pax.get("size"));
+                }
+            } else if (data != null) {
+                queue.put(new QueryFile(bundle + "/" + name, data, null));
+            }
+        }
+    }
+
+    /**
+     * Parses the {@code <length> <key>=<value>\n} records of a pax header.
+     */
+    private static Map<String, String> paxRecords(byte[] data) throws IOException {
+        HashMap<String, String> records = new HashMap<>();
+        int pos = 0;
+        while (pos < data.length && data[pos] != 0) {
+            int space = pos;
+            int length = 0;
+            while (space < data.length && data[space] >= '0' && data[space] <= '9' && length < data.length) {
+                length = length * 10 + data[space++] - '0';
+            }
+            int end = pos + length;
+            if (space == pos || space >= data.length || data[space] != ' ' || end <= space + 1 || end > data.length
+                    || data[end - 1] != '\n') {
+                throw new IOException("invalid pax header");
+            }
+            String record = new String(data, space + 1, end - space - 2, StandardCharsets.UTF_8);
+            int eq = record.indexOf('=');
+            if (eq < 0) {
+                throw new IOException("invalid pax header");
+            }
+            records.put(record.substring(0, eq), record.substring(eq + 1));
+            pos = end;
+        }
+        return records;
+    }
+
+    private static long parseSize(String size) throws IOException {
+        try {
+            long value = Long.parseLong(size);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IOException("invalid pax size: " + size);
+    }
+
+    private static String tarName(byte[] header) {
+        String name = field(header, 0, 100);
+        String prefix = field(header, 345, 155);
+        boolean ustar = field(header, 257, 6).startsWith("ustar");
+        return ustar && !prefix.isEmpty() ? prefix + "/" + name : name;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimNul(byte[] data) {
+        int end = 0;
+        while (end < data.length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (value > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("invalid tar header");
+            }
+            value = value * 8 + (b - '0');
+        }
+        return value;
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int n = 0;
+        while (n < block.length) {
+            int r = in.read(block, n, block.length - n);
+            if (r < 0) {
+                if (n == 0) {
+                    return false;
+                }
+                throw new EOFException("truncated tar header");
+            }
+            n += r;
+        }
+        return true;
+    }
+
+    private static byte[] readExactly(InputStream in, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("tar entry too large: " + size + " bytes");
+        }
+        byte[] data = new byte[(int) size];
+        int n = 0;
+        while (n < data.length) {
+            int r = in.read(data, n, data.length - n);
+            if (r < 0) {
+                throw new EOFException("truncated tar entry");
+            }
+            n += r;
+        }
+        return data;
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        long left = n;
+        while (left > 0) {
+            long skipped = in.skip(left);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("truncated tar entry");
+                }
+                skipped = 1;
+            }
+            left -= skipped;
+        }
+    }
+
+    private static byte[] readAllBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[BUFFER_SIZE];
+        int r;
+        while ((r = in.read(buf)) >= 0) {
+            out.write(buf, 0, r);
+        }
+        return out.toByteArray();
+    }
+
+}
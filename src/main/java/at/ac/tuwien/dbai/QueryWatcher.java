@@ -0,0 +1,115 @@
+package at.ac.tuwien.dbai;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory of query files and reconverts a {@code .sql} file
+ * whenever its content changes. Bursts of events, e.g. an editor writing a
+ * file in several steps, are coalesced, and files whose content hash did not
+ * change are skipped, so only the outputs of edited queries are rewritten.
+ */
+public final class QueryWatcher {
+
+    /** Time without events after which a burst of events is handled. */
+    private static final long QUIET_MILLIS = 50;
+
+    private final Path dir;
+    private final Options opts;
+    private final DedupFilter<QueryBlocks> dedup;
+    private final HashMap<Path, byte[]> hashes = new HashMap<>();
+    private final MessageDigest digest;
+
+    public QueryWatcher(Path dir, Options opts, DedupFilter<QueryBlocks> dedup) {
+        this.dir = dir;
+        this.opts = opts;
+        this.dedup = dedup;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Converts all the queries in the directory, then reconverts changed ones
+     * until the thread is interrupted.
+     */
+    public void run() throws IOException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.sql")) {
+                for (Path file : files) {
+                    update(file);
+                }
+            }
+            App.saveDictionary(opts);
+            System.out.println("Watching " + dir);
+            while (true) {
+                LinkedHashSet<Path> changed = new LinkedHashSet<>();
+                WatchKey key = watcher.take();
+                while (key != null) {
+                    collect(key, changed);
+                    key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                for (Path file : changed) {
+                    update(file);
+                }
+                App.saveDictionary(opts);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collect(WatchKey key, LinkedHashSet<Path> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost: recheck every known file
+                changed.addAll(hashes.keySet());
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context());
+            if (file.getFileName().toString().toLowerCase().endsWith(".sql")) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    private void update(Path file) throws IOException {
+        byte[] query;
+        try {
+            query = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            hashes.remove(file);
+            return;
+        }
+        byte[] hash = digest.digest(query);
+        if (Arrays.equals(hash, hashes.get(file))) {
+            return;
+        }
+        long start = System.nanoTime();
+        // a query that cannot be converted is not reported again until it changes
+        hashes.put(file, hash);
+        if (App.process(file.toString(), query, opts, dedup)) {
+            System.out.println("Converted " + file + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Yannakakis' algorithm for an acyclic query as a sequence of SQL statements.
+ * Every table occurrence is copied to a temporary table with its selections
+ * applied, the copies are reduced by semi-joins along a join tree, bottom-up
+ * and then top-down, so that they only keep rows that occur in the result,
+ * and are finally joined.
+ *
+ * <p>
+ * The join tree is the one found by {@link HypergraphReducer}: an edge that
+ * is removed as a subset of another edge is a child of that edge, and the
+ * query is acyclic iff the reduction leaves at most one edge. The semi-joins
+ * are expressed as {@code DELETE ... WHERE NOT EXISTS}, and every statement
+ * is generated in time linear in the size of its edges.
+ *
+ * <p>
+ * Positional parameters keep their number {@code ?<n>} in the query, so each
+ * is bound to the value of the query's n-th parameter whatever statement it
+ * ends up in. A query reading a CTE or a derived table has no program, as the
+ * block is not a table the copy could be made from outside the query, and
+ * neither has a query with an outer join or a correlated subquery.
+ *
+ * <p>
+ * A filter of one table, e.g. {@code r.a < 5}, is applied to its copy, and a
+ * filter of several tables to the final join, where the copies are aliased
+ * like the tables. The semi-joins only use the equalities, so they may keep
+ * rows that such a filter drops.
+ */
+public final class SemiJoinProgram {
+
+    private static final String PREFIX = "sj_";
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final HypergraphBuilder builder;
+    private final Hypergraph h;
+    /** Parent of every edge in the join tree, or -1 for the root. */
+    private final int[] parent;
+    private final String[] temp;
+    /** Alias of every copy in the final join, the name of its atom if possible. */
+    private final String[] alias;
+    /** For every edge, the first column of each of its variables. */
+    private final List<Map<String, String>> columnOfVar = new ArrayList<>();
+
+    private SemiJoinProgram(HypergraphBuilder builder, Hypergraph h, int[] parent) {
+        this.builder = builder;
+        this.h = h;
+        this.parent = parent;
+        temp = new String[h.edgeCount()];
+        alias = new String[h.edgeCount()];
+        // SQL names are case-insensitive, and sanitising may merge aliases
+        HashSet<String> used = new HashSet<>();
+        for (int e = 0; e < temp.length; e++) {
+            String base = PREFIX + h.edgeName(e).replaceAll("[^A-Za-z0-9_]", "_");
+            temp[e] = base;
+            for (int n = 1; !used.add(temp[e].toLowerCase(Locale.ROOT)); n++) {
+                temp[e] = base + "_" + n;
+            }
+            alias[e] = IDENTIFIER.matcher(h.edgeName(e)).matches() ? h.edgeName(e) : temp[e];
+            HashMap<String, String> cols = new HashMap<>();
+            for (Map.Entry<String, String> term : builder.getTerms(h.edgeName(e)).entrySet()) {
+                cols.merge(term.getValue(), term.getKey(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+            columnOfVar.add(cols);
+        }
+    }
+
+    /**
+     * Generates the program for the query of a builder, or for its subquery
+     * made of the edges of a hypergraph of it, e.g. its core.
+     *
+     * @return the statements, or a comment why there are none
+     */
+    public static List<String> generate(HypergraphBuilder builder, Hypergraph h) {
+        if (builder.hasOuterJoin()) {
+            return Collections.singletonList("-- the query has an outer join");
+        }
+        if (builder.isCorrelated()) {
+            return Collections.singletonList("-- the query refers to columns of an enclosing query");
+        }
+        boolean joinFilters = !builder.getJoinFilters().isEmpty();
+        for (int e = 0; e < h.edgeCount(); e++) {
+            String atom = h.edgeName(e);
+            if (builder.readsBlock(atom)) {
+                return Collections.singletonList("-- " + atom + " reads the query block "
+                        + builder.getRelation(atom) + ", not a table");
+            }
+            if (joinFilters && !IDENTIFIER.matcher(atom).matches()) {
+                return Collections.singletonList("-- " + atom + " needs an alias to be filtered in the join");
+            }
+        }
+        int[] parent = joinTree(h);
+        if (parent == null) {
+            return Collections.singletonList("-- the query is cyclic");
+        }
+        return new SemiJoinProgram(builder, h, parent).statements();
+    }
+
+    /**
+     * Builds a join tree from the edges removed by the reduction.
+     *
+     * @return the parent of every edge, or {@code null} if there is none
+     */
+    static int[] joinTree(Hypergraph h) {
+        HypergraphReducer.Result reduced = HypergraphReducer.reduce(h);
+        if (!reduced.isAcyclic()) {
+            return null;
+        }
+        HashMap<String, Integer> index = new HashMap<>();
+        for (int e = 0; e < h.edgeCount(); e++) {
+            index.put(h.edgeName(e), e);
+        }
+        int[] parent = new int[h.edgeCount()];
+        Arrays.fill(parent, -1);
+        for (HypergraphReducer.Step step : reduced.getTrace()) {
+            if (step.getKind() == HypergraphReducer.Kind.REMOVE_EDGE) {
+                parent[index.get(step.getSubject())] = index.get(step.getTarget());
+            }
+        }
+        return parent;
+    }
+
+    private List<String> statements() {
+        int root = -1;
+        ArrayList<ArrayList<Integer>> children = new ArrayList<>();
+        for (int e = 0; e < parent.length; e++) {
+            children.add(new ArrayList<>());
+        }
+        for (int e = 0; e < parent.length; e++) {
+            if (parent[e] < 0) {
+                root = e;
+            } else {
+                children.get(parent[e]).add(e);
+            }
+        }
+        ArrayList<String> out = new ArrayList<>();
+        if (root < 0) {
+            return out;
+        }
+        // pre-order: every edge after its parent
+        ArrayList<Integer> preorder = new ArrayList<>(parent.length);
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int e = stack.pop();
+            preorder.add(e);
+            for (int i = children.get(e).size() - 1; i >= 0; i--) {
+                stack.push(children.get(e).get(i));
+            }
+        }
+
+        out.add("-- full reducer of the join tree rooted at " + h.edgeName(root));
+        for (int e : preorder) {
+            out.add(copy(e));
+        }
+        for (int i = preorder.size() - 1; i > 0; i--) {
+            int e = preorder.get(i);
+            out.add(semiJoin(parent[e], e));
+        }
+        for (int i = 1; i < preorder.size(); i++) {
+            int e = preorder.get(i);
+            out.add(semiJoin(e, parent[e]));
+        }
+        out.add("-- join of the reduced tables");
+        out.add(join(preorder));
+        for (int e : preorder) {
+            out.add("DROP TABLE " + temp[e] + ";");
+        }
+        return out;
+    }
+
+    /**
+     * Copies a table occurrence with its selections and the equalities between
+     * its own columns applied.
+     */
+    private String copy(int e) {
+        String atom = h.edgeName(e);
+        String relation = builder.getRelation(atom);
+        StringBuilder sb = new StringBuilder(100);
+        sb.append("CREATE TEMPORARY TABLE ").append(temp[e]).append(" AS SELECT * FROM ").append(relation);
+        if (!relation.equals(atom)) {
+            sb.append(' ').append(atom);
+        }
+        ArrayList<String> conditions = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> sel : builder.getSelections(atom).entrySet()) {
+            // a column selected with two literals leaves the copy empty
+            for (String literal : sel.getValue()) {
+                conditions.add(atom + "." + sel.getKey() + " = " + literal);
+            }
+        }
+        Map<String, String> cols = columnOfVar.get(e);
+        for (Map.Entry<String, String> term : builder.getTerms(atom).entrySet()) {
+            String first = cols.get(term.getValue());
+            if (!first.equals(term.getKey())) {
+                conditions.add(atom + "." + first + " = " + atom + "." + term.getKey());
+            }
+        }
+        conditions.addAll(builder.getFilters(atom));
+        appendWhere(sb, conditions);
+        return sb.append(';').toString();
+    }
+
+    /**
+     * Deletes the rows of {@code target} without a matching row in
+     * {@code filter}.
+     */
+    private String semiJoin(int target, int filter) {
+        StringBuilder sb = new StringBuilder(100);
+        sb.append("DELETE FROM ").append(temp[target]).append(" WHERE NOT EXISTS (SELECT 1 FROM ")
+                .append(temp[filter]);
+        appendWhere(sb, sharedEqualities(filter, target));
+        return sb.append(");").toString();
+    }
+
+    private List<String> sharedEqualities(int e, int f) {
+        ArrayList<String> conditions = new ArrayList<>();
+        BitSet other = h.edge(f);
+        BitSet edge = h.edge(e);
+        for (int v = edge.nextSetBit(0); v >= 0; v = edge.nextSetBit(v + 1)) {
+            if (other.get(v)) {
+                String var = h.vertexName(v);
+                conditions.add(temp[e] + "." + columnOfVar.get(e).get(var) + " = " + temp[f] + "."
+                        + columnOfVar.get(f).get(var));
+            }
+        }
+        return conditions;
+    }
+
+    /**
+     * Joins the reduced tables, each variable equating the column of the
+     * first edge it occurs in with the columns of the others, and applies the
+     * filters of several tables.
+     */
+    private String join(List<Integer> preorder) {
+        StringBuilder sb = new StringBuilder(100);
+        sb.append("SELECT * FROM ");
+        for (int i = 0; i < preorder.size(); i++) {
+            int e = preorder.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(temp[e]);
+            if (!alias[e].equals(temp[e])) {
+                sb.append(' ').append(alias[e]);
+            }
+        }
+        ArrayList<String> conditions = new ArrayList<>();
+        BitSet[] incidence = h.incidence();
+        for (int v = 0; v < incidence.length; v++) {
+            String var = h.vertexName(v);
+            int first = incidence[v].nextSetBit(0);
+            for (int e = incidence[v].nextSetBit(first + 1); e >= 0; e = incidence[v].nextSetBit(e + 1)) {
+                conditions.add(alias[first] + "." + columnOfVar.get(first).get(var) + " = " + alias[e] + "."
+                        + columnOfVar.get(e).get(var));
+            }
+        }
+        conditions.addAll(builder.getJoinFilters());
+        appendWhere(sb, conditions);
+        return sb.append(';').toString();
+    }
+
+    private static void appendWhere(StringBuilder sb, List<String> conditions) {
+        for (int i = 0; i < conditions.size(); i++) {
+            sb.append(i == 0 ? " WHERE " : " AND ").append(conditions.get(i));
+        }
+    }
+
+}
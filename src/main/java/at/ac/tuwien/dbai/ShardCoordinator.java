@@ -0,0 +1,222 @@
+package at.ac.tuwien.dbai;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Converts a large batch of queries with several worker JVMs, so that the
+ * throughput is not limited by the heap and the garbage collector of a single
+ * JVM.
+ *
+ * <p>
+ * The input files are split into shards, one list of files per shard, in the
+ * {@code pending} directory of a file-based queue. Workers ({@link ShardWorker})
+ * claim a shard by atomically moving it to {@code running}, convert it and
+ * write its metrics to {@code done}. When a worker crashes, the shards it had
+ * claimed are put back to {@code pending} and a new worker is started, up to
+ * {@link #MAX_ATTEMPTS} times per shard. At the end the metrics of all the
+ * shards are merged.
+ */
+public final class ShardCoordinator {
+
+    static final String PENDING = "pending";
+    static final String RUNNING = "running";
+    static final String DONE = "done";
+    static final String FAILED = "failed";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int SHARDS_PER_WORKER = 4;
+    private static final long POLL_MILLIS = 100;
+
+    private final Options opts;
+    private final Path queue;
+    private final HashMap<Integer, Process> workers = new HashMap<>();
+    private final HashMap<String, Integer> attempts = new HashMap<>();
+    private int nextWorker;
+
+    public ShardCoordinator(Options opts) throws IOException {
+        this.opts = opts;
+        this.queue = Files.createTempDirectory("sql2hg-queue");
+        for (String dir : new String[] {PENDING, RUNNING, DONE, FAILED}) {
+            Files.createDirectory(queue.resolve(dir));
+        }
+    }
+
+    /**
+     * Runs the batch to completion.
+     *
+     * @return whether all the queries were converted
+     */
+    public boolean run() throws IOException, InterruptedException {
+        int shards = writeShards();
+        long start = System.nanoTime();
+        System.out.println("Converting " + opts.files.size() + " inputs in " + shards + " shards with "
+                + opts.workers + " workers, queue " + queue);
+        while (hasPending() || !workers.isEmpty()) {
+            reapWorkers();
+            while (hasPending() && workers.size() < opts.workers) {
+                startWorker();
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        return report(System.nanoTime() - start);
+    }
+
+    /**
+     * Splits the input files round-robin into shards, largest files first.
+     */
+    private int writeShards() throws IOException {
+        List<String> files = new ArrayList<>(opts.files);
+        files.sort((a, b) -> Long.compare(size(b), size(a)));
+        int shards = Math.max(1, Math.min(files.size(), opts.workers * SHARDS_PER_WORKER));
+        List<List<String>> lists = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            lists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < files.size(); i++) {
+            lists.get(i % shards).add(new File(files.get(i)).getAbsolutePath());
+        }
+        for (int i = 0; i < shards; i++) {
+            String name = String.format(Locale.ROOT, "shard-%05d", i);
+            Files.write(queue.resolve(PENDING).resolve(name), lists.get(i), StandardCharsets.UTF_8);
+            attempts.put(name, 0);
+        }
+        return shards;
+    }
+
+    private static long size(String file) {
+        return new File(file).length();
+    }
+
+    private boolean hasPending() throws IOException {
+        try (DirectoryStream<Path> pending = Files.newDirectoryStream(queue.resolve(PENDING))) {
+            return pending.iterator().hasNext();
+        }
+    }
+
+    private void startWorker() throws IOException {
+        int id = nextWorker++;
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(App.class.getName());
+        cmd.add("--queue=" + queue);
+        cmd.add("--worker=" + id);
+        for (String arg : opts.args) {
+            if (arg.startsWith("--") && !arg.startsWith("--workers=")) {
+                cmd.add(arg);
+            }
+        }
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectOutput(queue.resolve("worker-" + id + ".log").toFile());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        workers.put(id, pb.start());
+    }
+
+    /**
+     * Forgets the workers that have exited and requeues the shards of those that
+     * crashed.
+     */
+    private void reapWorkers() throws IOException {
+        Iterator<Map.Entry<Integer, Process>> it = workers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Process> worker = it.next();
+            if (worker.getValue().isAlive()) {
+                continue;
+            }
+            it.remove();
+            int exit = worker.getValue().exitValue();
+            if (exit != 0) {
+                System.err.println("Worker " + worker.getKey() + " exited with " + exit);
+                requeue(worker.getKey());
+            }
+        }
+    }
+
+    private void requeue(int workerId) throws IOException {
+        String suffix = "." + workerId;
+        try (DirectoryStream<Path> running = Files.newDirectoryStream(queue.resolve(RUNNING), "*" + suffix)) {
+            for (Path claimed : running) {
+                String file = claimed.getFileName().toString();
+                String shard = file.substring(0, file.length() - suffix.length());
+                int n = attempts.merge(shard, 1, Integer::sum);
+                String target = n < MAX_ATTEMPTS ? PENDING : FAILED;
+                Files.move(claimed, queue.resolve(target).resolve(shard), StandardCopyOption.ATOMIC_MOVE);
+                System.err.println((n < MAX_ATTEMPTS ? "Retrying " : "Giving up on ") + shard);
+            }
+        }
+    }
+
+    private boolean report(long nanos) throws IOException {
+        long queries = 0;
+        long failed = 0;
+        long duplicates = 0;
+        WorkloadReport workload = new WorkloadReport();
+        try (DirectoryStream<Path> done = Files.newDirectoryStream(queue.resolve(DONE))) {
+            for (Path metrics : done) {
+                Properties p = new Properties();
+                try (InputStream in = Files.newInputStream(metrics)) {
+                    p.load(in);
+                }
+                queries += Long.parseLong(p.getProperty(ShardWorker.QUERIES, "0"));
+                failed += Long.parseLong(p.getProperty(ShardWorker.FAILED, "0"));
+                duplicates += Long.parseLong(p.getProperty(ShardWorker.DUPLICATES, "0"));
+                workload.merge(WorkloadReport.load(p));
+            }
+        }
+        int failedShards = 0;
+        try (DirectoryStream<Path> failedDir = Files.newDirectoryStream(queue.resolve(FAILED))) {
+            for (Path shard : failedDir) {
+                System.err.println("Not converted: " + Files.readAllLines(shard, StandardCharsets.UTF_8));
+                failedShards++;
+            }
+        }
+        double seconds = nanos / 1e9;
+        System.out.println(String.format(Locale.ROOT, "Converted %d queries (%d failed, %d duplicates) in %.1f s, %.0f queries/s",
+                queries - failed, failed, duplicates, seconds, queries / seconds));
+        if (opts.reportFile != null) {
+            App.writeReport(opts.reportFile, workload);
+        }
+        if (failedShards > 0) {
+            System.out.println(failedShards + " shards failed, queue kept in " + queue);
+        } else {
+            deleteQueue();
+        }
+        return failed == 0 && failedShards == 0;
+    }
+
+    private void deleteQueue() throws IOException {
+        for (String dir : new String[] {PENDING, RUNNING, DONE, FAILED}) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(queue.resolve(dir))) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(queue.resolve(dir));
+        }
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(queue)) {
+            for (Path log : logs) {
+                Files.delete(log);
+            }
+        }
+        Files.delete(queue);
+    }
+
+}
@@ -0,0 +1,107 @@
+package at.ac.tuwien.dbai;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Worker process of a {@link ShardCoordinator}. Claims pending shards until
+ * there are none left and converts their files like a normal run.
+ */
+public final class ShardWorker {
+
+    static final String QUERIES = "queries";
+    static final String FAILED = "failed";
+    static final String DUPLICATES = "duplicates";
+
+    private final Path queue;
+    private final String id;
+    private final Options opts;
+    private final DedupFilter<QueryBlocks> dedup;
+
+    public ShardWorker(Path queue, String id, Options opts, DedupFilter<QueryBlocks> dedup) {
+        this.queue = queue;
+        this.id = id;
+        this.opts = opts;
+        this.dedup = dedup;
+    }
+
+    public void run() throws IOException {
+        for (Path shard = claim(); shard != null; shard = claim()) {
+            String name = shard.getFileName().toString();
+            name = name.substring(0, name.length() - id.length() - 1);
+            Properties metrics = convert(Files.readAllLines(shard, StandardCharsets.UTF_8));
+            Path done = queue.resolve(ShardCoordinator.DONE).resolve(name);
+            try (OutputStream out = Files.newOutputStream(done)) {
+                metrics.store(out, null);
+            }
+            Files.delete(shard);
+        }
+    }
+
+    /**
+     * Moves a pending shard to the running directory, tagged with the id of
+     * this worker.
+     *
+     * @return the claimed shard, or {@code null} if there are no pending shards
+     */
+    private Path claim() throws IOException {
+        try (DirectoryStream<Path> pending = Files.newDirectoryStream(queue.resolve(ShardCoordinator.PENDING))) {
+            for (Path shard : pending) {
+                Path claimed = queue.resolve(ShardCoordinator.RUNNING).resolve(shard.getFileName() + "." + id);
+                try {
+                    return Files.move(shard, claimed, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    // claimed by another worker in the meantime
+                    continue;
+                } catch (AtomicMoveNotSupportedException e) {
+                    throw new IOException("the queue needs a file system with atomic renames", e);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Properties convert(List<String> files) throws IOException {
+        long queries = 0;
+        long failed = 0;
+        long duplicatesBefore = dedup != null ? dedup.getHits() : 0;
+        // a shard that is retried must not be counted twice
+        if (opts.reportFile != null) {
+            opts.report = new WorkloadReport();
+        }
+        if (opts.pipeline) {
+            opts.writer = OutputWriter.start();
+        }
+        QueryReader reader = QueryReader.start(files);
+        for (QueryReader.QueryFile file = reader.next(); file != null; file = reader.next()) {
+            queries++;
+            if (file.getError() != null) {
+                System.err.println("Cannot read " + file.getName() + ": " + file.getError());
+                failed++;
+            } else if (!App.process(file.getName(), file.getContent(), opts, dedup)) {
+                failed++;
+            }
+        }
+        if (opts.writer != null) {
+            opts.writer.close();
+        }
+        Properties metrics = new Properties();
+        metrics.setProperty(QUERIES, Long.toString(queries));
+        metrics.setProperty(FAILED, Long.toString(failed));
+        metrics.setProperty(DUPLICATES, Long.toString(dedup != null ? dedup.getHits() - duplicatesBefore : 0));
+        if (opts.report != null) {
+            opts.report.store(metrics);
+        }
+        return metrics;
+    }
+
+}
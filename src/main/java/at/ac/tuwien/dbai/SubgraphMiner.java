@@ -0,0 +1,501 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds the sub-queries shared by many queries of a workload, candidates for
+ * materialised views.
+ *
+ * <p>
+ * A sub-query is a connected set of atoms of a query together with the
+ * equivalence classes of columns joining them. Two sub-queries are the same
+ * if they have the same tables, joined on the same columns, whatever the
+ * aliases and variable names; the key of a sub-query is its canonical form:
+ * the atoms sorted by table id, ties broken by trying every order, and the
+ * sorted classes of {@code <atom>.<column>}, all as ids interned across the
+ * workload. Selections are ignored.
+ *
+ * <p>
+ * Sub-queries are mined level by level, as in Apriori: a sub-query can only
+ * be frequent if its smaller sub-queries are. An index counts the queries
+ * of every join signature {@code <table>.<column>=<table>.<column>}, and
+ * only joins with a frequent signature are followed. Every level extends
+ * the frequent sub-queries of the previous level by one adjacent atom, so
+ * the work depends on what is shared, not on the size of the queries.
+ * Queries are kept as arrays of table and column ids. A query with more
+ * sub-queries at a level than a limit only follows that many, and is counted
+ * by {@link #getCapped()}.
+ */
+public final class SubgraphMiner {
+
+    /** Largest number of atoms of a sub-query. */
+    static final int MAX_ATOMS = 5;
+    /** Most sub-queries of a query followed at every level. */
+    static final int MAX_SUBSETS = 10000;
+    /** Most candidates written. */
+    private static final int MAX_CANDIDATES = 1000;
+
+    /**
+     * A query as table and column ids: the table of every atom, and the
+     * columns of every atom with the class of each.
+     */
+    private static final class Query {
+        final String name;
+        final int[] tables;
+        final int[][] columns;
+        final int[][] classes;
+        /** Atoms joined with every atom by a frequent signature. */
+        BitSet[] adjacent;
+        /** Frequent sub-queries of the last level, or single atoms at first. */
+        Map<BitSet, Candidate> frontier;
+
+        Query(String name, int[] tables, int[][] columns, int[][] classes) {
+            this.name = name;
+            this.tables = tables;
+            this.columns = columns;
+            this.classes = classes;
+        }
+    }
+
+    /**
+     * A shared sub-query: the number of queries it occurs in, and the first
+     * of them with the atoms of the sub-query in canonical order.
+     */
+    private static final class Candidate {
+        final int atoms;
+        final int example;
+        final int[] order;
+        int support;
+        int lastQuery = -1;
+        boolean closed = true;
+        final HashSet<Candidate> children = new HashSet<>();
+        String sql;
+
+        Candidate(int example, int[] order) {
+            this.atoms = order.length;
+            this.example = example;
+            this.order = order;
+        }
+
+        long score() {
+            return (long) support * (atoms - 1);
+        }
+    }
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Query> queries = new ArrayList<>();
+    private final int maxSubsets;
+    /** Queries with more sub-queries than {@link #maxSubsets} at some level. */
+    private final BitSet capped = new BitSet();
+
+    public SubgraphMiner() {
+        this(MAX_SUBSETS);
+    }
+
+    SubgraphMiner(int maxSubsets) {
+        this.maxSubsets = maxSubsets;
+    }
+
+    private int id(String name) {
+        Integer i = ids.get(name);
+        if (i == null) {
+            i = names.size();
+            ids.put(name, i);
+            names.add(name);
+        }
+        return i;
+    }
+
+    /**
+     * Adds the atoms of a query and the variables joining them.
+     *
+     * @param h the hypergraph of the query, e.g. its core
+     */
+    public synchronized void add(String name, HypergraphBuilder builder, Hypergraph h) {
+        int n = h.edgeCount();
+        int[] tables = new int[n];
+        int[][] columns = new int[n][];
+        int[][] classes = new int[n][];
+        HashMap<String, Integer> vars = new HashMap<>();
+        for (int e = 0; e < n; e++) {
+            String atom = h.edgeName(e);
+            tables[e] = id(builder.getRelation(atom));
+            Map<String, String> terms = builder.getTerms(atom);
+            columns[e] = new int[terms.size()];
+            classes[e] = new int[terms.size()];
+            int i = 0;
+            for (Map.Entry<String, String> term : terms.entrySet()) {
+                columns[e][i] = id(term.getKey());
+                Integer v = vars.get(term.getValue());
+                if (v == null) {
+                    v = vars.size();
+                    vars.put(term.getValue(), v);
+                }
+                classes[e][i++] = v;
+            }
+        }
+        queries.add(new Query(name, tables, columns, classes));
+    }
+
+    /**
+     * Mines the sub-queries shared by at least {@code minSupport} queries.
+     *
+     * @return one {@code score=<s> support=<n> atoms=<k> example=<query>:
+     *         <sql>} line per candidate, the best first, where the score is the
+     *         number of joins the candidate saves over the workload. A candidate
+     *         is only written if no larger one occurs in as many queries.
+     */
+    public synchronized List<String> mine(int minSupport) {
+        HashSet<String> frequent = frequentSignatures(minSupport);
+        for (Query q : queries) {
+            q.adjacent = adjacency(q, frequent);
+            q.frontier = new HashMap<>();
+            for (int a = 0; a < q.tables.length; a++) {
+                if (!q.adjacent[a].isEmpty()) {
+                    BitSet single = new BitSet();
+                    single.set(a);
+                    q.frontier.put(single, null);
+                }
+            }
+        }
+        List<Candidate> found = new ArrayList<>();
+        for (int level = 2; level <= MAX_ATOMS; level++) {
+            HashMap<Key, Candidate> current = new HashMap<>();
+            List<HashMap<BitSet, Candidate>> occurrences = new ArrayList<>(queries.size());
+            for (int qi = 0; qi < queries.size(); qi++) {
+                Query q = queries.get(qi);
+                HashMap<BitSet, Candidate> next = new HashMap<>();
+                for (Map.Entry<BitSet, Candidate> sub : q.frontier.entrySet()) {
+                    BitSet subset = sub.getKey();
+                    Candidate parent = sub.getValue();
+                    BitSet neighbours = new BitSet();
+                    for (int a = subset.nextSetBit(0); a >= 0; a = subset.nextSetBit(a + 1)) {
+                        neighbours.or(q.adjacent[a]);
+                    }
+                    neighbours.andNot(subset);
+                    for (int b = neighbours.nextSetBit(0); b >= 0; b = neighbours.nextSetBit(b + 1)) {
+                        BitSet grown = (BitSet) subset.clone();
+                        grown.set(b);
+                        Candidate c = next.get(grown);
+                        if (c == null && next.size() >= maxSubsets) {
+                            // the supports of the sub-queries left out are undercounted
+                            capped.set(qi);
+                            continue;
+                        }
+                        if (c == null) {
+                            int[] order = canonicalOrder(q, grown);
+                            Key key = key(q, order);
+                            c = current.get(key);
+                            if (c == null) {
+                                c = new Candidate(qi, order);
+                                current.put(key, c);
+                            }
+                            if (c.lastQuery != qi) {
+                                c.lastQuery = qi;
+                                c.support++;
+                            }
+                            next.put(grown, c);
+                        }
+                        if (parent != null) {
+                            parent.children.add(c);
+                        }
+                    }
+                }
+                occurrences.add(next);
+            }
+            for (Candidate c : current.values()) {
+                if (c.support >= minSupport) {
+                    found.add(c);
+                }
+            }
+            for (int qi = 0; qi < queries.size(); qi++) {
+                HashMap<BitSet, Candidate> frontier = new HashMap<>();
+                for (Map.Entry<BitSet, Candidate> o : occurrences.get(qi).entrySet()) {
+                    if (o.getValue().support >= minSupport) {
+                        frontier.put(o.getKey(), o.getValue());
+                    }
+                }
+                queries.get(qi).frontier = frontier;
+            }
+        }
+        for (Candidate c : found) {
+            for (Candidate child : c.children) {
+                if (child.support >= minSupport && child.support == c.support) {
+                    c.closed = false;
+                }
+            }
+        }
+        List<Candidate> ranked = new ArrayList<>();
+        for (Candidate c : found) {
+            if (c.closed) {
+                c.sql = sql(queries.get(c.example), c.order);
+                ranked.add(c);
+            }
+        }
+        ranked.sort((a, b) -> a.score() != b.score() ? Long.compare(b.score(), a.score())
+                : a.support != b.support ? Integer.compare(b.support, a.support) : a.sql.compareTo(b.sql));
+        List<String> lines = new ArrayList<>();
+        for (Candidate c : ranked.subList(0, Math.min(ranked.size(), MAX_CANDIDATES))) {
+            lines.add(String.format(Locale.ROOT, "score=%d support=%d atoms=%d example=%s: %s", c.score(), c.support,
+                    c.atoms, queries.get(c.example).name, c.sql));
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the number of queries of which only some sub-queries were
+     * followed at a level, as they had more than the limit, so that the
+     * support of the others is undercounted.
+     */
+    public synchronized int getCapped() {
+        return capped.cardinality();
+    }
+
+    /**
+     * Counts the queries of every join signature and returns the ones
+     * occurring in at least {@code minSupport} queries.
+     */
+    private HashSet<String> frequentSignatures(int minSupport) {
+        HashMap<String, Integer> counts = new HashMap<>();
+        for (Query q : queries) {
+            for (String s : signatures(q).keySet()) {
+                counts.merge(s, 1, Integer::sum);
+            }
+        }
+        HashSet<String> frequent = new HashSet<>();
+        for (Map.Entry<String, Integer> c : counts.entrySet()) {
+            if (c.getValue() >= minSupport) {
+                frequent.add(c.getKey());
+            }
+        }
+        return frequent;
+    }
+
+    /**
+     * Returns the join signatures of a query, each with the pairs of atoms
+     * it joins.
+     */
+    private Map<String, List<int[]>> signatures(Query q) {
+        HashMap<Integer, List<int[]>> pins = new HashMap<>();
+        for (int a = 0; a < q.tables.length; a++) {
+            for (int i = 0; i < q.classes[a].length; i++) {
+                pins.computeIfAbsent(q.classes[a][i], k -> new ArrayList<>()).add(new int[] {a, q.columns[a][i]});
+            }
+        }
+        HashMap<String, List<int[]>> signatures = new HashMap<>();
+        for (List<int[]> cls : pins.values()) {
+            for (int i = 0; i < cls.size(); i++) {
+                for (int j = i + 1; j < cls.size(); j++) {
+                    int[] x = cls.get(i);
+                    int[] y = cls.get(j);
+                    if (x[0] == y[0]) {
+                        continue;
+                    }
+                    String sx = names.get(q.tables[x[0]]) + "." + names.get(x[1]);
+                    String sy = names.get(q.tables[y[0]]) + "." + names.get(y[1]);
+                    String s = sx.compareTo(sy) <= 0 ? sx + "=" + sy : sy + "=" + sx;
+                    signatures.computeIfAbsent(s, k -> new ArrayList<>()).add(new int[] {x[0], y[0]});
+                }
+            }
+        }
+        return signatures;
+    }
+
+    private BitSet[] adjacency(Query q, HashSet<String> frequent) {
+        BitSet[] adjacent = new BitSet[q.tables.length];
+        for (int a = 0; a < adjacent.length; a++) {
+            adjacent[a] = new BitSet();
+        }
+        for (Map.Entry<String, List<int[]>> s : signatures(q).entrySet()) {
+            if (frequent.contains(s.getKey())) {
+                for (int[] pair : s.getValue()) {
+                    adjacent[pair[0]].set(pair[1]);
+                    adjacent[pair[1]].set(pair[0]);
+                }
+            }
+        }
+        return adjacent;
+    }
+
+    /**
+     * Canonical form of a sub-query: the table ids of its atoms, then its
+     * classes, each as its sorted pins {@code position << 24 | column id}
+     * and preceded by its size. Ids are global, so equal sub-queries of
+     * different queries have equal keys.
+     */
+    private static final class Key implements Comparable<Key> {
+        final int[] code;
+        final int hash;
+
+        Key(int[] code) {
+            this.code = code;
+            hash = Arrays.hashCode(code);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(code, ((Key) o).code);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            return compare(code, o.code);
+        }
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /**
+     * Returns the canonical order of a set of atoms of a query: sorted by
+     * table, with the atoms of the same table in the order giving the
+     * smallest key.
+     */
+    private int[] canonicalOrder(Query q, BitSet subset) {
+        int[] order = subset.stream().toArray();
+        for (int i = 1; i < order.length; i++) {
+            for (int j = i; j > 0 && q.tables[order[j - 1]] > q.tables[order[j]]; j--) {
+                swap(order, j - 1, j);
+            }
+        }
+        boolean ties = false;
+        for (int i = 1; i < order.length; i++) {
+            ties |= q.tables[order[i - 1]] == q.tables[order[i]];
+        }
+        if (!ties) {
+            return order;
+        }
+        Object[] best = new Object[2];
+        permuteTies(q, order, 0, best);
+        return (int[]) best[1];
+    }
+
+    /**
+     * Tries every order of the atoms with the same table from position
+     * {@code from} on and keeps the one with the smallest key in
+     * {@code best}, as key and order.
+     */
+    private void permuteTies(Query q, int[] order, int from, Object[] best) {
+        if (from == order.length) {
+            Key key = key(q, order);
+            if (best[0] == null || key.compareTo((Key) best[0]) < 0) {
+                best[0] = key;
+                best[1] = order.clone();
+            }
+            return;
+        }
+        int end = from;
+        while (end < order.length && q.tables[order[end]] == q.tables[order[from]]) {
+            end++;
+        }
+        permuteGroup(q, order, from, end, best);
+    }
+
+    private void permuteGroup(Query q, int[] order, int i, int end, Object[] best) {
+        if (i >= end - 1) {
+            permuteTies(q, order, end, best);
+            return;
+        }
+        for (int j = i; j < end; j++) {
+            swap(order, i, j);
+            permuteGroup(q, order, i + 1, end, best);
+            swap(order, i, j);
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static Key key(Query q, int[] order) {
+        List<int[]> classes = classes(q, order);
+        int size = order.length;
+        for (int[] cls : classes) {
+            size += cls.length + 1;
+        }
+        int[] code = new int[size];
+        int n = 0;
+        for (int a : order) {
+            code[n++] = q.tables[a];
+        }
+        for (int[] cls : classes) {
+            code[n++] = cls.length;
+            System.arraycopy(cls, 0, code, n, cls.length);
+            n += cls.length;
+        }
+        return new Key(code);
+    }
+
+    /**
+     * Returns the classes of the columns of a set of atoms in the given order
+     * that occur in at least two atoms or twice in one, each as its sorted
+     * pins {@code position << 24 | column id}, sorted.
+     */
+    private static List<int[]> classes(Query q, int[] order) {
+        HashMap<Integer, int[]> pins = new HashMap<>();
+        for (int pos = 0; pos < order.length; pos++) {
+            int a = order[pos];
+            for (int i = 0; i < q.classes[a].length; i++) {
+                int[] cls = pins.get(q.classes[a][i]);
+                cls = cls == null ? new int[1] : Arrays.copyOf(cls, cls.length + 1);
+                cls[cls.length - 1] = pos << 24 | q.columns[a][i];
+                pins.put(q.classes[a][i], cls);
+            }
+        }
+        List<int[]> classes = new ArrayList<>();
+        for (int[] cls : pins.values()) {
+            if (cls.length > 1) {
+                Arrays.sort(cls);
+                classes.add(cls);
+            }
+        }
+        classes.sort(SubgraphMiner::compare);
+        return classes;
+    }
+
+    /**
+     * Formats a set of atoms as a query joining their tables, with aliases
+     * {@code t0, t1, ...} in the given order.
+     */
+    private String sql(Query q, int[] order) {
+        StringBuilder sb = new StringBuilder("SELECT * FROM ");
+        for (int pos = 0; pos < order.length; pos++) {
+            sb.append(pos > 0 ? ", " : "").append(names.get(q.tables[order[pos]])).append(" t").append(pos);
+        }
+        String sep = " WHERE ";
+        for (int[] cls : classes(q, order)) {
+            for (int i = 1; i < cls.length; i++) {
+                sb.append(sep).append(pin(cls[0])).append(" = ").append(pin(cls[i]));
+                sep = " AND ";
+            }
+        }
+        return sb.toString();
+    }
+
+    private String pin(int pin) {
+        return "t" + (pin >>> 24) + "." + names.get(pin & 0xFFFFFF);
+    }
+
+}
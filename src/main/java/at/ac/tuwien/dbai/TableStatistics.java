@@ -0,0 +1,78 @@
+package at.ac.tuwien.dbai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table statistics read from a text file with one {@code table=rows} or
+ * {@code table.column=distinct} entry per line, the number of rows of a table
+ * or of distinct values in a column. Empty lines and lines starting with
+ * {@code #} are ignored.
+ *
+ * <p>
+ * The statistics are loaded once per run and shared by all the conversions.
+ */
+public final class TableStatistics {
+
+    private final Map<String, Long> counts;
+
+    private TableStatistics(Map<String, Long> counts) {
+        this.counts = counts;
+    }
+
+    public static TableStatistics load(Path file) throws IOException {
+        HashMap<String, Long> counts = new HashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int lineNo = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int eq = line.indexOf('=');
+                if (eq <= 0) {
+                    throw new IOException(file + ":" + lineNo + ": expected table=rows or table.column=distinct");
+                }
+                try {
+                    long n = Long.parseLong(line.substring(eq + 1).trim());
+                    if (n < 0) {
+                        throw new NumberFormatException();
+                    }
+                    counts.put(line.substring(0, eq).trim(), n);
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNo + ": invalid count: " + line.substring(eq + 1));
+                }
+            }
+        }
+        return new TableStatistics(counts);
+    }
+
+    /**
+     * Returns the number of rows of a table, or -1 if it is unknown.
+     */
+    public long getRows(String table) {
+        Long n = counts.get(table);
+        return n != null ? n : -1;
+    }
+
+    /**
+     * Returns the number of distinct values of a column, or -1 if it is
+     * unknown. The number of rows of the table is an upper bound when only that
+     * is known.
+     */
+    public long getDistinct(String table, String column) {
+        Long n = counts.get(table + "." + column);
+        long rows = getRows(table);
+        if (n == null) {
+            return rows;
+        }
+        return rows >= 0 ? Math.min(n, rows) : n;
+    }
+
+}
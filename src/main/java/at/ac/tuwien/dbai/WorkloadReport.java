@@ -0,0 +1,149 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Distributions of the structural parameters of the hypergraphs of a
+ * workload: number of edges and variables, rank (largest edge), degree
+ * (largest number of edges of a variable), intersection width (largest
+ * intersection of two edges) and acyclicity. Every hypergraph is only
+ * measured and added to {@link LogHistogram}s, so the report takes constant
+ * memory however many queries there are, and the reports of several workers
+ * can be merged. A query split into blocks or components adds one hypergraph
+ * for each, so the report counts hypergraphs, not queries.
+ */
+public final class WorkloadReport {
+
+    private static final String[] PARAMETERS = {"edges", "vars", "rank", "degree", "iwidth"};
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final String PREFIX = "report.";
+
+    private final LogHistogram[] histograms = new LogHistogram[PARAMETERS.length];
+    private long hypergraphs;
+    private long acyclic;
+
+    public WorkloadReport() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LogHistogram();
+        }
+    }
+
+    /**
+     * Measures a hypergraph and adds it to the report.
+     */
+    public synchronized void add(Hypergraph h) {
+        BitSet[] inc = h.incidence();
+        int rank = 0;
+        for (int e = 0; e < h.edgeCount(); e++) {
+            rank = Math.max(rank, h.edge(e).cardinality());
+        }
+        int degree = 0;
+        for (BitSet edgesOfVertex : inc) {
+            degree = Math.max(degree, edgesOfVertex.cardinality());
+        }
+        long[] values = {h.edgeCount(), h.vertexCount(), rank, degree, intersectionWidth(h, inc)};
+        for (int i = 0; i < values.length; i++) {
+            histograms[i].add(values[i]);
+        }
+        hypergraphs++;
+        if (HypergraphReducer.reduce(h).isAcyclic()) {
+            acyclic++;
+        }
+    }
+
+    /**
+     * Computes the largest intersection of two edges, only looking at the
+     * pairs of edges that share a vertex.
+     */
+    private static int intersectionWidth(Hypergraph h, BitSet[] inc) {
+        int width = 0;
+        BitSet others = new BitSet(h.edgeCount());
+        BitSet scratch = new BitSet(h.vertexCount());
+        for (int e = 0; e < h.edgeCount(); e++) {
+            BitSet edge = h.edge(e);
+            if (edge.cardinality() <= width) {
+                continue;
+            }
+            others.clear();
+            for (int v = edge.nextSetBit(0); v >= 0; v = edge.nextSetBit(v + 1)) {
+                others.or(inc[v]);
+            }
+            for (int f = others.nextSetBit(e + 1); f >= 0; f = others.nextSetBit(f + 1)) {
+                scratch.clear();
+                scratch.or(edge);
+                scratch.and(h.edge(f));
+                width = Math.max(width, scratch.cardinality());
+            }
+        }
+        return width;
+    }
+
+    public synchronized void merge(WorkloadReport other) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].merge(other.histograms[i]);
+        }
+        hypergraphs += other.hypergraphs;
+        acyclic += other.acyclic;
+    }
+
+    /**
+     * Stores the report in properties, e.g. the metrics of a shard.
+     */
+    public synchronized void store(Properties p) {
+        p.setProperty(PREFIX + "hypergraphs", Long.toString(hypergraphs));
+        p.setProperty(PREFIX + "acyclic", Long.toString(acyclic));
+        for (int i = 0; i < histograms.length; i++) {
+            p.setProperty(PREFIX + PARAMETERS[i], histograms[i].encode());
+        }
+    }
+
+    /**
+     * Loads a report stored by {@link #store(Properties)}, or returns an empty
+     * one if there is none.
+     */
+    public static WorkloadReport load(Properties p) {
+        WorkloadReport report = new WorkloadReport();
+        report.hypergraphs = Long.parseLong(p.getProperty(PREFIX + "hypergraphs", "0"));
+        report.acyclic = Long.parseLong(p.getProperty(PREFIX + "acyclic", "0"));
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            String encoded = p.getProperty(PREFIX + PARAMETERS[i]);
+            if (encoded != null) {
+                report.histograms[i] = LogHistogram.decode(encoded);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Summarises the report: the number of hypergraphs and of acyclic ones, a
+     * table of minimum, quantiles, maximum and mean per parameter, and the
+     * histogram of every parameter as {@code <value>=<count>} pairs.
+     */
+    public synchronized List<String> summary() {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "hypergraphs=%d acyclic=%d (%.1f%%)", hypergraphs, acyclic,
+                hypergraphs > 0 ? 100.0 * acyclic / hypergraphs : 0));
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-8s %8s", "", "min"));
+        for (double q : QUANTILES) {
+            header.append(String.format(Locale.ROOT, " %8s", "p" + Math.round(q * 100)));
+        }
+        lines.add(header.append(String.format(Locale.ROOT, " %8s %8s", "max", "mean")).toString());
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            LogHistogram hist = histograms[i];
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%-8s %8d", PARAMETERS[i], hist.getMin()));
+            for (double q : QUANTILES) {
+                sb.append(String.format(Locale.ROOT, " %8d", hist.quantile(q)));
+            }
+            lines.add(sb.append(String.format(Locale.ROOT, " %8d %8.2f", hist.getMax(), hist.getMean())).toString());
+        }
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            lines.add(PARAMETERS[i] + " histogram: " + String.join(" ", histograms[i].buckets()));
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,89 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.junit.jupiter.api.Test;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Primal and dual graphs of small hypergraphs, checked by hand.
+ */
+class BitGraphTest {
+
+    @Test
+    void primalGraphJoinsTheVerticesOfAnEdge() {
+        // a path r-s-t, an edge covering three vertices and an empty edge
+        BitGraph g = Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,d)", "w(d,e,f)", "u()").primalGraph();
+        assertEquals(6, g.size());
+        assertEquals("a", g.name(0));
+        assertEquals(Arrays.asList("a-b", "b-c", "c-d", "d-e", "d-f", "e-f"), edges(g));
+        assertEquals(1, g.degree(0));
+        assertEquals(3, g.degree(3));
+        assertFalse(g.isAdjacent(0, 0));
+    }
+
+    @Test
+    void dualGraphJoinsIntersectingEdges() {
+        BitGraph g = Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,d)", "w(d,e,f)", "u()").dualGraph();
+        assertEquals(5, g.size());
+        assertEquals("u", g.name(4));
+        assertEquals(Arrays.asList("r-s", "s-t", "t-w"), edges(g));
+        // the empty edge intersects nothing
+        assertEquals(0, g.degree(4));
+    }
+
+    @Test
+    void selfJoinIsTwoEdges() throws JSQLParserException {
+        // both atoms of r share the variable of a.x = b.y
+        Hypergraph h = App.convert("SELECT * FROM r a, r b WHERE a.x = b.y", null, null).getMain().getBuilder()
+                .toHypergraph();
+        assertEquals(2, h.edgeCount());
+        assertEquals(1, h.vertexCount());
+        assertEquals(Collections.singletonList(h.edgeName(0) + "-" + h.edgeName(1)), edges(h.dualGraph()));
+        assertEquals(Collections.emptyList(), edges(h.primalGraph()));
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        BitGraph g = Hypergraphs.of("r(a,b)", "s(c)").primalGraph();
+        BitSet[] copy = g.copyAdjacency();
+        copy[0].set(2);
+        assertFalse(g.isAdjacent(0, 2));
+        assertTrue(g.isAdjacent(0, 1));
+        Graph<String, DefaultEdge> jg = g.asGraph();
+        assertEquals(3, jg.vertexSet().size());
+        assertEquals(1, jg.edgeSet().size());
+        assertTrue(jg.containsEdge("a", "b"));
+        assertThrows(IllegalArgumentException.class, () -> new BitGraph(new String[] {"a"}, new BitSet[0]));
+    }
+
+    /**
+     * Lists the edges {@code u-v} with u before v, checking that the
+     * adjacency matrix is symmetric.
+     */
+    private static List<String> edges(BitGraph g) {
+        List<String> edges = new ArrayList<>();
+        for (int u = 0; u < g.size(); u++) {
+            for (int v = g.neighbours(u).nextSetBit(0); v >= 0; v = g.neighbours(u).nextSetBit(v + 1)) {
+                assertTrue(g.isAdjacent(v, u));
+                if (u < v) {
+                    edges.add(g.name(u) + "-" + g.name(v));
+                }
+            }
+        }
+        return edges;
+    }
+
+}
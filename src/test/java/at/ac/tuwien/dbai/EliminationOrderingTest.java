@@ -0,0 +1,115 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Elimination orderings of graphs whose treewidth is known.
+ */
+class EliminationOrderingTest {
+
+    /** Square a-b-c-d with a roof e on a-b. */
+    private static final Hypergraph HOUSE = Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,d)", "u(d,a)", "v(a,e)",
+            "w(e,b)");
+
+    @Test
+    void cycleHasWidthTwo() {
+        Hypergraph cycle = Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,d)", "u(d,e)", "v(e,f)", "w(f,a)");
+        for (EliminationOrdering.Heuristic heuristic : EliminationOrdering.Heuristic.values()) {
+            assertEquals(2, EliminationOrdering.compute(cycle.primalGraph(), heuristic).getWidth());
+        }
+    }
+
+    @Test
+    void cliqueHasWidthOfItsSizeMinusOne() {
+        Hypergraph clique = Hypergraphs.of("r(a,b,c,d,e)");
+        for (EliminationOrdering.Heuristic heuristic : EliminationOrdering.Heuristic.values()) {
+            assertEquals(4, EliminationOrdering.compute(clique.primalGraph(), heuristic).getWidth());
+        }
+    }
+
+    @Test
+    void treeHasWidthOne() {
+        Hypergraph tree = Hypergraphs.of("r(a,b)", "s(a,c)", "t(a,d)", "u(d,e)", "v(e,f)", "w(e,g)");
+        for (EliminationOrdering.Heuristic heuristic : EliminationOrdering.Heuristic.values()) {
+            EliminationOrdering ordering = EliminationOrdering.compute(tree.primalGraph(), heuristic);
+            assertEquals(1, ordering.getWidth());
+            assertEquals(heuristic, ordering.getHeuristic());
+        }
+    }
+
+    @Test
+    void minDegreeTakesTheFewestNeighbours() {
+        // c, d and e have two neighbours, c comes first; eliminating c joins b and d
+        EliminationOrdering ordering = EliminationOrdering.compute(HOUSE.primalGraph(),
+                EliminationOrdering.Heuristic.MIN_DEGREE);
+        assertArrayEquals(new int[] {2, 3, 0, 1, 4}, ordering.getOrder());
+        assertEquals(2, ordering.getWidth());
+    }
+
+    @Test
+    void minFillTakesTheFewestFillEdges() {
+        // the neighbours a and b of e are adjacent, so e adds no fill
+        EliminationOrdering ordering = EliminationOrdering.compute(HOUSE.primalGraph(),
+                EliminationOrdering.Heuristic.MIN_FILL);
+        assertArrayEquals(new int[] {4, 0, 1, 2, 3}, ordering.getOrder());
+        assertEquals(2, ordering.getWidth());
+    }
+
+    @Test
+    void widthBoundsTheTreewidth() {
+        // the 3x3 grid has treewidth 3
+        List<String> edges = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (j < 2) {
+                    edges.add("h" + i + j + "(v" + i + j + ",v" + i + (j + 1) + ")");
+                }
+                if (i < 2) {
+                    edges.add("g" + i + j + "(v" + i + j + ",v" + (i + 1) + j + ")");
+                }
+            }
+        }
+        Hypergraph grid = Hypergraphs.of(edges.toArray(new String[0]));
+        BitGraph primal = grid.primalGraph();
+        int best = Integer.MAX_VALUE;
+        for (EliminationOrdering.Heuristic heuristic : EliminationOrdering.Heuristic.values()) {
+            EliminationOrdering ordering = EliminationOrdering.compute(primal, heuristic);
+            assertEquals(width(primal, ordering.getOrder()), ordering.getWidth());
+            assertTrue(ordering.getWidth() >= 3);
+            best = Math.min(best, ordering.getWidth());
+        }
+        List<String> report = EliminationOrdering.report(grid);
+        assertEquals(4, report.size());
+        assertTrue(report.get(3).startsWith("treewidth<=" + best + " ("));
+    }
+
+    /**
+     * Eliminates the vertices in the given order, naively, and returns the
+     * largest neighbourhood of a vertex when it is eliminated.
+     */
+    private static int width(BitGraph g, int[] order) {
+        BitSet[] adj = g.copyAdjacency();
+        BitSet eliminated = new BitSet();
+        int width = 0;
+        for (int v : order) {
+            BitSet nb = (BitSet) adj[v].clone();
+            nb.andNot(eliminated);
+            width = Math.max(width, nb.cardinality());
+            for (int u = nb.nextSetBit(0); u >= 0; u = nb.nextSetBit(u + 1)) {
+                adj[u].or(nb);
+                adj[u].clear(u);
+            }
+            eliminated.set(v);
+        }
+        return width;
+    }
+
+}
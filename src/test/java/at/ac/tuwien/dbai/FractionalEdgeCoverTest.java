@@ -0,0 +1,92 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Fractional edge covers and AGM bounds of small joins.
+ */
+class FractionalEdgeCoverTest {
+
+    private static final double DELTA = 1e-9;
+    private static final String TRIANGLE = "SELECT * FROM r1 a, r2 b, r3 c WHERE a.x = b.x AND b.y = c.y AND c.z = a.z";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void triangleNeedsHalfOfEveryEdge() {
+        FractionalEdgeCover cover = FractionalEdgeCover.compute(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,a)"));
+        assertEquals(1.5, cover.getValue(), DELTA);
+        for (int e = 0; e < 3; e++) {
+            assertEquals(0.5, cover.getWeight(e), DELTA);
+        }
+    }
+
+    @Test
+    void pathIsCoveredByItsEnds() {
+        FractionalEdgeCover cover = FractionalEdgeCover.compute(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,d)"));
+        assertEquals(2, cover.getValue(), DELTA);
+        assertEquals(1, cover.getWeight(0), DELTA);
+        assertEquals(0, cover.getWeight(1), DELTA);
+        assertEquals(1, cover.getWeight(2), DELTA);
+    }
+
+    @Test
+    void costsSelectTheCheapestCover() {
+        // log2 sizes 4, 4 and 10: r and s cover all the vertices for 8, half
+        // of every edge would cost 9
+        FractionalEdgeCover cover = FractionalEdgeCover.compute(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,a)"),
+                new double[] {4, 4, 10});
+        assertEquals(8, cover.getValue(), DELTA);
+        assertEquals(0, cover.getWeight(2), DELTA);
+    }
+
+    @Test
+    void agmBoundOfTriangleWithEqualSizes() throws IOException, JSQLParserException {
+        List<String> report = agmReport(TRIANGLE, "r1=100", "r2=100", "r3=100");
+        assertEquals("rho*=1.50000", report.get(0));
+        assertEquals("agm=1000.00", report.get(1));
+    }
+
+    @Test
+    void agmBoundOfTriangleWithUnequalSizes() throws IOException, JSQLParserException {
+        // covering with a and b costs 16 * 16 = 256 < sqrt(16 * 16 * 1024)
+        List<String> report = agmReport(TRIANGLE, "r1=16", "r2=16", "r3=1024");
+        assertEquals("rho*=1.50000", report.get(0));
+        assertEquals("agm=256.000", report.get(1));
+        assertTrue(report.containsAll(Arrays.asList("cover a=1.00000", "cover b=1.00000", "cover c=0.00000")));
+    }
+
+    @Test
+    void agmBoundIsUnknownWithoutAllSizes() throws IOException, JSQLParserException {
+        assertEquals("agm=unknown", agmReport(TRIANGLE, "r1=16", "r2=16").get(1));
+        assertEquals("agm=0", agmReport(TRIANGLE, "r1=16", "r2=0").get(1));
+    }
+
+    @Test
+    void crossProductCountsFullSize() throws IOException, JSQLParserException {
+        List<String> report = agmReport("SELECT * FROM r1 a, r2 b WHERE a.x = 1", "r1=8", "r2=4");
+        assertEquals("rho*=2.00000", report.get(0));
+        assertEquals("agm=32.0000", report.get(1));
+    }
+
+    private List<String> agmReport(String query, String... stats) throws IOException, JSQLParserException {
+        Path file = dir.resolve("stats");
+        Files.write(file, Arrays.asList(stats));
+        HypergraphBuilder builder = App.convert(query, null, null).getMain().getBuilder();
+        return FractionalEdgeCover.agmReport(builder.toHypergraph(), builder, TableStatistics.load(file));
+    }
+
+}
@@ -0,0 +1,68 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Atoms, selections and dictionary names of the builder.
+ */
+class HypergraphBuilderTest {
+
+    @Test
+    void dictionaryIdsIgnoreAliases() throws JSQLParserException {
+        ColumnDictionary dict = new ColumnDictionary();
+        List<String> first = hypergraph("SELECT * FROM lineitem l, orders o WHERE l.ok = o.ok", dict);
+        List<String> second = hypergraph("SELECT * FROM lineitem li, orders ord WHERE li.ok = ord.ok", dict);
+        assertEquals(new HashSet<>(Arrays.asList("l(v0)", "o(v0)")), new HashSet<>(first));
+        assertEquals(new HashSet<>(Arrays.asList("li(v0)", "ord(v0)")), new HashSet<>(second));
+        assertEquals(2, dict.size());
+    }
+
+    @Test
+    void selfJoinClassesGetDistinctNames() throws JSQLParserException {
+        ColumnDictionary dict = new ColumnDictionary();
+        dict.id("r.x");
+        List<String> lines = hypergraph("SELECT * FROM r a, r b, s c WHERE a.x = c.x AND b.x = c.y", dict);
+        // both classes contain r.x, id 0
+        assertEquals(new HashSet<>(Arrays.asList("a(v0)", "b(v0_1)", "c(v0,v0_1)")), new HashSet<>(sorted(lines)));
+        // only r.x, s.x and s.y are shared, not the aliases or the class names
+        assertEquals(3, dict.size());
+    }
+
+    @Test
+    void keepsEveryLiteralOfASelection() throws JSQLParserException {
+        HypergraphBuilder builder = App.convert("SELECT * FROM r a WHERE a.y = 2 AND a.y = 1 AND a.y = 2", null, null)
+                .getMain().getBuilder();
+        assertEquals(Collections.singletonMap("y", new HashSet<>(Arrays.asList("1", "2"))),
+                builder.getSelections("a"));
+        assertEquals("r", builder.getRelation("a"));
+    }
+
+    private static List<String> hypergraph(String query, ColumnDictionary dict) throws JSQLParserException {
+        return App.convert(query, null, dict).getMain().getBuilder().makeHypergraph();
+    }
+
+    /**
+     * Sorts the variables of every edge, whose order is not defined.
+     */
+    private static List<String> sorted(List<String> lines) {
+        String[] out = new String[lines.size()];
+        for (int i = 0; i < out.length; i++) {
+            String line = lines.get(i);
+            int open = line.indexOf('(');
+            String[] vars = line.substring(open + 1, line.length() - 1).split(",");
+            Arrays.sort(vars);
+            out[i] = line.substring(0, open + 1) + String.join(",", vars) + ")";
+        }
+        return Arrays.asList(out);
+    }
+
+}
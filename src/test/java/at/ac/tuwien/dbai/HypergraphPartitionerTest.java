@@ -0,0 +1,114 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Balance and cut of partitions of chains, cycles and skewed weights.
+ */
+class HypergraphPartitionerTest {
+
+    private static final double IMBALANCE = 0.1;
+
+    @Test
+    void bisectsChainInTheMiddle() {
+        HypergraphPartitioner p = HypergraphPartitioner.partition(chain(10, false), 2, null, null, IMBALANCE);
+        // the bound is max(floor(1.1 * 5), ceil(5), 1) = 5
+        assertBalanced(p.getParts(), ones(10), 2, 5);
+        assertEquals(1, p.getCut());
+    }
+
+    @Test
+    void splitsChainIntoFourRuns() {
+        HypergraphPartitioner p = HypergraphPartitioner.partition(chain(16, false), 4, null, null, IMBALANCE);
+        assertBalanced(p.getParts(), ones(16), 4, 4);
+        assertEquals(3, p.getCut());
+    }
+
+    @Test
+    void bisectsCycleAcrossTwoVariables() {
+        HypergraphPartitioner p = HypergraphPartitioner.partition(chain(12, true), 2, null, null, IMBALANCE);
+        assertBalanced(p.getParts(), ones(12), 2, 6);
+        assertEquals(2, p.getCut());
+    }
+
+    @Test
+    void roundsTheAverageUp() {
+        // 7 atoms in 2 parts: 4 and 3, even without any imbalance
+        HypergraphPartitioner p = HypergraphPartitioner.partition(chain(7, false), 2, null, null, 0);
+        assertBalanced(p.getParts(), ones(7), 2, 4);
+    }
+
+    @Test
+    void heaviestAtomGetsAPartOfItsOwn() {
+        long[] weights = {1, 1, 20, 1, 1, 1};
+        HypergraphPartitioner p = HypergraphPartitioner.partition(chain(6, false), 2, weights, null, IMBALANCE);
+        // the average is 12.5, but no part can be lighter than the atom of 20
+        assertBalanced(p.getParts(), weights, 2, 20);
+        int heavy = p.getParts()[2];
+        for (int e = 0; e < weights.length; e++) {
+            assertTrue(e == 2 || p.getParts()[e] != heavy, "atom " + e + " is with the heaviest atom");
+        }
+    }
+
+    @Test
+    void heavyVariablesAreNotCut() {
+        // r1 and r2 share a variable of weight 100, so the middle of the chain
+        // stays together and both ends are cut off: r0, r3 | r1, r2
+        long[] varWeights = {1, 1, 100, 1, 1};
+        HypergraphPartitioner p = HypergraphPartitioner.partition(chain(4, false), 2, null, varWeights, IMBALANCE);
+        assertEquals(p.getParts()[1], p.getParts()[2]);
+        assertEquals(p.getParts()[0], p.getParts()[3]);
+        assertEquals(2, p.getCut());
+    }
+
+    @Test
+    void singlePartHasNoCut() {
+        HypergraphPartitioner p = HypergraphPartitioner.partition(chain(5, true), 1, null, null, IMBALANCE);
+        assertBalanced(p.getParts(), ones(5), 1, 5);
+        assertEquals(0, p.getCut());
+        assertEquals("parts=1 cut=0 cut_variables=", p.toLines().get(0));
+    }
+
+    @Test
+    void rejectsNonPositiveParts() {
+        assertThrows(IllegalArgumentException.class,
+                () -> HypergraphPartitioner.partition(chain(3, false), 0, null, null, IMBALANCE));
+    }
+
+    /**
+     * Builds a chain of atoms {@code r<i>(v<i>,v<i+1>)}, closed into a cycle
+     * if asked.
+     */
+    private static Hypergraph chain(int atoms, boolean cycle) {
+        String[] edges = new String[atoms];
+        for (int i = 0; i < atoms; i++) {
+            int next = cycle && i == atoms - 1 ? 0 : i + 1;
+            edges[i] = "r" + i + "(v" + i + ",v" + next + ")";
+        }
+        return Hypergraphs.of(edges);
+    }
+
+    private static long[] ones(int n) {
+        long[] w = new long[n];
+        Arrays.fill(w, 1);
+        return w;
+    }
+
+    private static void assertBalanced(int[] parts, long[] weights, int k, long bound) {
+        long[] partWeights = new long[k];
+        for (int e = 0; e < parts.length; e++) {
+            assertTrue(parts[e] >= 0 && parts[e] < k, "part of atom " + e + ": " + parts[e]);
+            partWeights[parts[e]] += weights[e];
+        }
+        for (int p = 0; p < k; p++) {
+            assertTrue(partWeights[p] <= bound, "part " + p + " weighs " + partWeights[p] + " > " + bound);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * GYO reduction of small acyclic and cyclic hypergraphs.
+ */
+class HypergraphReducerTest {
+
+    @Test
+    void pathIsAcyclic() {
+        HypergraphReducer.Result result = HypergraphReducer.reduce(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,d)"));
+        assertTrue(result.isAcyclic());
+        assertEquals(1, result.getReduced().edgeCount());
+        assertEquals("s", result.getReduced().edgeName(0));
+        assertEquals(Arrays.asList("drop a r", "drop d t", "remove r s", "remove t s", "drop b s", "drop c s"),
+                result.traceLines());
+    }
+
+    @Test
+    void triangleIsCyclic() {
+        HypergraphReducer.Result result = HypergraphReducer.reduce(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,a)"));
+        assertFalse(result.isAcyclic());
+        assertEquals(3, result.getReduced().edgeCount());
+        assertEquals(Collections.emptyList(), result.getTrace());
+    }
+
+    @Test
+    void triangleWithCoveringEdgeIsAcyclic() {
+        HypergraphReducer.Result result = HypergraphReducer
+                .reduce(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,a)", "u(a,b,c)"));
+        assertTrue(result.isAcyclic());
+        assertEquals("u", result.getReduced().edgeName(0));
+    }
+
+    @Test
+    void mergedVerticesAreRestored() {
+        // b and c occur in the same edges, and a and d in a single one
+        HypergraphReducer.Result result = HypergraphReducer
+                .reduce(Hypergraphs.of("r(a,b,c)", "s(b,c,d)", "t(d,a)"));
+        assertFalse(result.isAcyclic());
+        assertTrue(result.traceLines().contains("merge c b"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")),
+                result.restoreMerged(Arrays.asList("a", "b")));
+    }
+
+    @Test
+    void inputIsNotModified() {
+        Hypergraph h = Hypergraphs.of("r(a,b)", "s(b,c)");
+        HypergraphReducer.reduce(h);
+        assertEquals(Arrays.asList("r(a,b)", "s(b,c)"), h.toLines());
+    }
+
+}
@@ -0,0 +1,38 @@
+package at.ac.tuwien.dbai;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Hypergraphs for the tests.
+ */
+final class Hypergraphs {
+
+    private Hypergraphs() {
+    }
+
+    /**
+     * Builds a hypergraph from edges written as {@code name(v1,v2,...)}. The
+     * edges and the vertices are numbered in the order they are written.
+     */
+    static Hypergraph of(String... edges) {
+        String[] edgeNames = new String[edges.length];
+        BitSet[] sets = new BitSet[edges.length];
+        List<String> vertices = new ArrayList<>();
+        for (int e = 0; e < edges.length; e++) {
+            int open = edges[e].indexOf('(');
+            edgeNames[e] = edges[e].substring(0, open);
+            sets[e] = new BitSet();
+            String args = edges[e].substring(open + 1, edges[e].length() - 1);
+            for (String v : args.isEmpty() ? new String[0] : args.split(",")) {
+                if (!vertices.contains(v)) {
+                    vertices.add(v);
+                }
+                sets[e].set(vertices.indexOf(v));
+            }
+        }
+        return new Hypergraph(edgeNames, vertices.toArray(new String[0]), sets);
+    }
+
+}
@@ -0,0 +1,96 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Buckets, quantiles and merging of histograms, and the workload report made
+ * of them.
+ */
+class LogHistogramTest {
+
+    @Test
+    void smallValuesHaveABucketEach() {
+        LogHistogram h = histogram(0, 1, 1, 63);
+        assertEquals(Arrays.asList("0=1", "1=2", "63=1"), h.buckets());
+    }
+
+    @Test
+    void largeValuesShareBuckets() {
+        // from 64 on, every power of two is split into 16 buckets: 4 wide
+        // up to 128, 8 wide up to 256
+        LogHistogram h = histogram(64, 67, 68, 127, 128, 135, 136);
+        assertEquals(Arrays.asList("64=2", "68=1", "124=1", "128=2", "136=1"), h.buckets());
+        assertEquals(64, h.getMin());
+        assertEquals(136, h.getMax());
+    }
+
+    @Test
+    void quantilesAreWithinTheirBucket() {
+        LogHistogram h = new LogHistogram();
+        for (int v = 1; v <= 100; v++) {
+            h.add(v);
+        }
+        assertEquals(50, h.quantile(0.5));
+        // 90 is in the bucket from 88 to 91
+        assertEquals(88, h.quantile(0.9));
+        // 99 is in the bucket from 96 to 99
+        assertEquals(96, h.quantile(0.99));
+        assertEquals(100, h.quantile(1));
+        assertEquals(50.5, h.getMean(), 1e-9);
+        assertEquals(0, new LogHistogram().quantile(0.5));
+    }
+
+    @Test
+    void mergeAddsTheCounts() {
+        LogHistogram h = histogram(5, 1000);
+        h.merge(histogram(0, 5, 1 << 20));
+        assertEquals(5, h.getCount());
+        assertEquals(0, h.getMin());
+        assertEquals(1 << 20, h.getMax());
+        assertEquals(Arrays.asList("0=1", "5=2", "992=1", "1048576=1"), h.buckets());
+        LogHistogram empty = new LogHistogram();
+        empty.merge(new LogHistogram());
+        assertEquals(0, empty.getMin());
+    }
+
+    @Test
+    void decodesWhatItEncodes() {
+        LogHistogram h = histogram(3, 3, 70, 5000);
+        LogHistogram decoded = LogHistogram.decode(h.encode());
+        assertEquals(h.encode(), decoded.encode());
+        assertEquals(h.buckets(), decoded.buckets());
+        assertEquals(h.quantile(0.5), decoded.quantile(0.5));
+        assertEquals(h.getMean(), decoded.getMean(), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> LogHistogram.decode("1 2 x"));
+        assertThrows(IllegalArgumentException.class, () -> new LogHistogram().add(-1));
+    }
+
+    @Test
+    void reportsAreStoredAndMerged() {
+        WorkloadReport first = new WorkloadReport();
+        first.add(Hypergraphs.of("r(a,b)", "s(b,c)"));
+        WorkloadReport second = new WorkloadReport();
+        second.add(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,a)"));
+        Properties stored = new Properties();
+        second.store(stored);
+        first.merge(WorkloadReport.load(stored));
+        assertEquals("hypergraphs=2 acyclic=1 (50.0%)", first.summary().get(0));
+        assertEquals("edges histogram: 2=1 3=1", first.summary().get(7));
+        assertEquals("hypergraphs=0 acyclic=0 (0.0%)", WorkloadReport.load(new Properties()).summary().get(0));
+    }
+
+    private static LogHistogram histogram(long... values) {
+        LogHistogram h = new LogHistogram();
+        for (long v : values) {
+            h.add(v);
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,78 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writing the outputs of several queries in batches, and failing writes.
+ */
+class OutputWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesQueuedQueriesInOneBatch() throws IOException {
+        // the queries are queued before the writer starts, so it takes them at once
+        OutputWriter writer = new OutputWriter();
+        for (int q = 0; q < 3; q++) {
+            writer.submit("", files("q" + q + "/out.hg", "e" + q + "(a,b)", "f" + q + "(b,c)"));
+        }
+        writer.thread.start();
+        writer.close();
+        for (int q = 0; q < 3; q++) {
+            assertEquals(Arrays.asList("e" + q + "(a,b)", "f" + q + "(b,c)"),
+                    Files.readAllLines(dir.resolve("q" + q).resolve("out.hg")));
+        }
+        // the end of the queue may or may not be taken with the queries
+        String statistics = writer.statistics();
+        assertTrue(statistics.equals("3 queries in 1 batches") || statistics.equals("3 queries in 2 batches"),
+                statistics);
+    }
+
+    @Test
+    void overwritesEarlierOutputs() throws IOException {
+        OutputWriter writer = OutputWriter.start();
+        writer.submit("", files("out.hg", "e(a,b)", "f(b,c)"));
+        writer.submit("", files("out.hg", "g(a)"));
+        writer.close();
+        assertEquals(Collections.singletonList("g(a)"), Files.readAllLines(dir.resolve("out.hg")));
+    }
+
+    @Test
+    void reportsFailedWrites() throws IOException {
+        // a regular file cannot be the directory of an output
+        Files.write(dir.resolve("file"), Collections.singletonList("x"));
+        OutputWriter writer = OutputWriter.start();
+        writer.submit("", files("file/out.hg", "e(a,b)"));
+        assertThrows(IOException.class, writer::close);
+        assertThrows(IOException.class, () -> writer.submit("", files("out.hg", "e(a,b)")));
+        assertTrue(Files.notExists(dir.resolve("out.hg")));
+    }
+
+    @Test
+    void reportsInterruptedWriter() throws IOException, InterruptedException {
+        OutputWriter writer = OutputWriter.start();
+        writer.thread.interrupt();
+        writer.thread.join();
+        assertThrows(IOException.class, () -> writer.submit("", files("out.hg", "e(a,b)")));
+        assertThrows(IOException.class, writer::close);
+    }
+
+    private Map<String, List<String>> files(String name, String... lines) {
+        return Collections.singletonMap(dir.resolve(name).toString(), Arrays.asList(lines));
+    }
+
+}
@@ -0,0 +1,125 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Query blocks of nested queries, CTEs and derived tables, and the joins,
+ * selections and filters found in each.
+ */
+class QueryBlocksTest {
+
+    private static QueryBlocks blocks(String query) throws JSQLParserException {
+        return App.convert(query, null, null);
+    }
+
+    private static QueryBlocks.Block block(QueryBlocks blocks, String name) {
+        return blocks.getBlocks().stream().filter(b -> b.getName().equals(name)).findFirst().get();
+    }
+
+    private static List<String> strings(List<?> items) {
+        return items.stream().map(Object::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void splitsNestedBlocks() throws JSQLParserException {
+        QueryBlocks blocks = blocks("WITH c AS (SELECT * FROM r, s WHERE r.a = s.a) "
+                + "SELECT * FROM c, (SELECT * FROM t UNION SELECT * FROM u) d "
+                + "WHERE c.a = d.a AND c.b IN (SELECT v.b FROM v)");
+        assertEquals(Arrays.asList("c:", "d_u0:", "d_u1:", "subquery:", "main: c d_u0 d_u1 subquery"),
+                blocks.dependencyLines());
+        assertEquals(Collections.singletonList("r.a = s.a"), strings(block(blocks, "c").getJoins()));
+        assertEquals(Collections.singletonList("c.a = d.a"), strings(blocks.getMain().getJoins()));
+        // the inner blocks are independent of each other
+        assertEquals(2, blocks.getLevels().size());
+        assertEquals(Collections.singletonList(blocks.getMain()), blocks.getLevels().get(1));
+    }
+
+    @Test
+    void cteNamesAreScopedToTheirQuery() throws JSQLParserException {
+        // t is a CTE in the derived table only, and a table outside of it
+        QueryBlocks blocks = blocks("SELECT * FROM (WITH t AS (SELECT * FROM r) SELECT * FROM t) d, t "
+                + "WHERE d.a = t.a");
+        assertEquals(Collections.singleton("d"), blocks.getMain().getDependencies());
+        assertTrue(blocks.getMain().getBuilder().readsBlock("d"));
+        assertFalse(blocks.getMain().getBuilder().readsBlock("t"));
+        assertEquals(Collections.singleton("t"), block(blocks, "d").getDependencies());
+    }
+
+    @Test
+    void valuesCteIsNotABlock() throws JSQLParserException {
+        QueryBlocks blocks = blocks("WITH t (x) AS (VALUES 1, 2) SELECT * FROM t, r WHERE t.x = r.x");
+        assertEquals(1, blocks.getBlocks().size());
+        assertTrue(blocks.getMain().getBuilder().readsBlock("t"));
+    }
+
+    @Test
+    void otherConditionsAreFilters() throws JSQLParserException {
+        QueryBlocks blocks = blocks("SELECT * FROM customer c, orders o WHERE c.custkey = o.custkey "
+                + "AND o.orderdate < DATE '1995-03-15' AND c.name LIKE 'A%' AND o.price BETWEEN 1 AND ? "
+                + "AND (c.phone IS NULL OR o.price > c.balance) AND c.segment = 'BUILDING'");
+        QueryBlocks.Block main = blocks.getMain();
+        assertEquals(Collections.singletonList("c.custkey = o.custkey"), strings(main.getJoins()));
+        assertEquals(Arrays.asList("o.orderdate < DATE '1995-03-15'", "c.name LIKE 'A%'",
+                "o.price BETWEEN 1 AND ?1", "(c.phone IS NULL OR o.price > c.balance)"), strings(main.getFilters()));
+        assertEquals(new HashSet<>(Arrays.asList("c", "o")), main.getFilters().get(3).atoms);
+        HypergraphBuilder builder = main.getBuilder();
+        assertEquals(Collections.singletonMap("segment", Collections.singleton("'BUILDING'")),
+                builder.getSelections("c"));
+        assertEquals(Collections.singletonList("c.name LIKE 'A%'"), builder.getFilters("c"));
+        assertEquals(Collections.singletonList("(c.phone IS NULL OR o.price > c.balance)"),
+                builder.getJoinFilters());
+    }
+
+    @Test
+    void ambiguousColumnsFilterEveryAtom() throws JSQLParserException {
+        QueryBlocks.Block main = blocks("SELECT * FROM r, s WHERE r.a = s.a AND b > 1").getMain();
+        assertNull(main.getFilters().get(0).atoms);
+        assertTrue(main.getBuilder().isFiltered("r"));
+        assertTrue(main.getBuilder().isFiltered("s"));
+    }
+
+    @Test
+    void correlatedSubqueriesFilterTheirOuterAtoms() throws JSQLParserException {
+        QueryBlocks blocks = blocks("SELECT * FROM r, s WHERE r.a = s.a "
+                + "AND NOT EXISTS (SELECT * FROM t WHERE t.b = s.b AND t.c > 5)");
+        assertEquals(Collections.singleton("s"), blocks.getMain().getFilters().get(0).atoms);
+        HypergraphBuilder subquery = block(blocks, "subquery").getBuilder();
+        assertTrue(subquery.isCorrelated());
+        // the column of the enclosing query is a constant for the subquery
+        assertEquals(Collections.singletonMap("b", Collections.singleton("s.b")), subquery.getSelections("t"));
+        assertEquals(Collections.singletonList("t.c > 5"), subquery.getFilters("t"));
+    }
+
+    @Test
+    void usingEquatesTheNamedColumns() throws JSQLParserException {
+        QueryBlocks.Block main = blocks("SELECT * FROM r JOIN s USING (a, b) JOIN t USING (b), u JOIN v USING (c)")
+                .getMain();
+        assertEquals(Arrays.asList("r.a = s.a", "r.b = s.b", "s.b = t.b", "u.c = v.c"), strings(main.getJoins()));
+    }
+
+    @Test
+    void outerJoinsAreMarked() throws JSQLParserException {
+        assertTrue(blocks("SELECT * FROM r LEFT JOIN s ON r.a = s.a").getMain().getBuilder().hasOuterJoin());
+        assertFalse(blocks("SELECT * FROM r JOIN s ON r.a = s.a").getMain().getBuilder().hasOuterJoin());
+    }
+
+    @Test
+    void naturalJoinsNeedTheSchema() {
+        assertThrows(UnsupportedOperationException.class, () -> blocks("SELECT * FROM r NATURAL JOIN s"));
+    }
+
+}
@@ -0,0 +1,103 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Minimisation of queries with redundant and necessary self-joins.
+ */
+class QueryCoreTest {
+
+    private static final long BUDGET_MILLIS = 10_000;
+
+    @Test
+    void removesDuplicatedSelfJoin() throws JSQLParserException {
+        QueryCore core = core("SELECT DISTINCT c.x FROM r a, r b, s c WHERE a.x = c.x AND b.x = c.x");
+        assertTrue(core.isComplete());
+        assertEquals(2, core.getCore().edgeCount());
+        assertEquals(1, core.getRemoved().size());
+        assertTrue(core.getRemoved().containsValue("a") || core.getRemoved().containsValue("b"));
+    }
+
+    @Test
+    void keepsTheAtomWithTheSelection() throws JSQLParserException {
+        // b maps onto a, whose selection it does not have, but not the other way round
+        QueryCore core = core("SELECT DISTINCT c.x FROM r a, r b, s c WHERE a.x = c.x AND b.x = c.x AND a.y = 5");
+        assertEquals(Collections.singletonMap("b", "a"), core.getRemoved());
+    }
+
+    @Test
+    void keepsAtomsWithDifferentSelections() throws JSQLParserException {
+        QueryCore core = core("SELECT DISTINCT c.x FROM r a, r b, s c WHERE a.x = c.x AND b.x = c.x AND a.y = 5 AND b.y = 7");
+        assertEquals(3, core.getCore().edgeCount());
+        assertEquals(Collections.emptyMap(), core.getRemoved());
+    }
+
+    @Test
+    void removesAtomsWithEqualSelections() throws JSQLParserException {
+        QueryCore core = core("SELECT DISTINCT c.x FROM r a, r b, s c WHERE a.x = c.x AND b.x = c.x AND a.y = 5 AND b.y = 5");
+        assertEquals(2, core.getCore().edgeCount());
+    }
+
+    @Test
+    void keepsSelfJoinOnDifferentColumns() throws JSQLParserException {
+        QueryCore core = core("SELECT DISTINCT a.x FROM r a, r b WHERE a.y = b.x");
+        assertTrue(core.isComplete());
+        assertEquals(2, core.getCore().edgeCount());
+    }
+
+    @Test
+    void foldsCopyOfCycle() throws JSQLParserException {
+        // c, d is a second copy of the 2-cycle a, b over e
+        QueryCore core = core("SELECT DISTINCT a.x FROM e a, e b, e c, e d WHERE a.y = b.x AND b.y = a.x "
+                + "AND c.y = d.x AND d.y = c.x");
+        assertEquals(2, core.getCore().edgeCount());
+        assertEquals(Collections.singletonList("atoms=4"), core.reportLines().subList(0, 1));
+    }
+
+    @Test
+    void keepsTheAtomWithAFilter() throws JSQLParserException {
+        // a can only be mapped to itself, b can still be mapped to a
+        QueryCore core = core("SELECT DISTINCT c.x FROM r a, r b, s c WHERE a.x = c.x AND b.x = c.x AND a.y < 5");
+        assertEquals(Collections.singletonMap("b", "a"), core.getRemoved());
+        core = core("SELECT DISTINCT c.x FROM r a, r b, s c WHERE a.x = c.x AND b.x = c.x AND (a.y < 5 OR b.y < 5)");
+        assertEquals(Collections.emptyMap(), core.getRemoved());
+    }
+
+    @Test
+    void skipsOuterJoins() throws JSQLParserException {
+        QueryCore core = core("SELECT DISTINCT a.x FROM r a LEFT JOIN r b ON a.x = b.x");
+        assertEquals(Collections.emptyMap(), core.getRemoved());
+        assertEquals("outer join", core.getSkipped());
+    }
+
+    @Test
+    void keepsProjectedSelfJoin() throws JSQLParserException {
+        // every row of a joins with as many rows of b as share its x
+        QueryCore core = core("SELECT * FROM r a, r b WHERE a.x = b.x");
+        assertEquals(Collections.emptyMap(), core.getRemoved());
+        assertEquals("not DISTINCT", core.getSkipped());
+        // the columns of a and b are all in the output
+        core = core("SELECT DISTINCT * FROM r a, r b WHERE a.x = b.x");
+        assertEquals(Collections.emptyMap(), core.getRemoved());
+        assertEquals(null, core.getSkipped());
+        core = core("SELECT DISTINCT a.x FROM r a, r b WHERE a.x = b.x");
+        assertEquals(Collections.singletonMap("b", "a"), core.getRemoved());
+        // b.y is only in b, and a.x = b.x is in both
+        core = core("SELECT DISTINCT a.x, b.y FROM r a, r b WHERE a.x = b.x");
+        assertEquals(Collections.singletonMap("a", "b"), core.getRemoved());
+        core = core("SELECT DISTINCT a.x FROM r a, r b WHERE a.x = b.x GROUP BY a.x");
+        assertEquals("not DISTINCT", core.getSkipped());
+    }
+
+    private static QueryCore core(String query) throws JSQLParserException {
+        return QueryCore.compute(App.convert(query, null, null).getMain().getBuilder(), BUDGET_MILLIS);
+    }
+
+}
@@ -0,0 +1,82 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Normalisation of query templates, and reuse and eviction of their results.
+ */
+class QueryFingerprintTest {
+
+    private static final String QUERY = "SELECT * FROM r a, s b WHERE a.x = b.x AND a.y = 5";
+
+    @Test
+    void ignoresLiteralsCommentsSpaceAndKeywordCase() {
+        assertSameTemplate(QUERY, "SELECT * FROM r a, s b WHERE a.x = b.x AND a.y = 'five'");
+        assertSameTemplate(QUERY, "SELECT * FROM r a, s b WHERE a.x = b.x AND a.y = 1.5e-3");
+        assertSameTemplate(QUERY, "select *\n  from r a, s b -- two tables\n  where a.x = b.x /* join */ and a.y = 7");
+        assertSameTemplate("SELECT 'it''s' FROM r", "SELECT 'x' FROM r");
+    }
+
+    @Test
+    void keepsIdentifiers() {
+        // a duplicate is written with the aliases and columns of its template
+        assertDifferentTemplate(QUERY, "SELECT * FROM r A, s b WHERE A.x = b.x AND A.y = 5");
+        assertDifferentTemplate(QUERY, "SELECT * FROM R a, s b WHERE a.x = b.x AND a.y = 5");
+        assertDifferentTemplate("SELECT * FROM \"r\"", "SELECT * FROM \"R\"");
+        assertDifferentTemplate("SELECT * FROM r1", "SELECT * FROM r2");
+        // a keyword is only lower-cased as a whole word
+        assertDifferentTemplate("SELECT * FROM Order_line", "SELECT * FROM order_line");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedTemplate() {
+        DedupFilter<String> dedup = new DedupFilter<>(2);
+        QueryFingerprint a = fingerprint("SELECT * FROM a");
+        QueryFingerprint b = fingerprint("SELECT * FROM b");
+        QueryFingerprint c = fingerprint("SELECT * FROM c");
+        dedup.put(a, "a");
+        dedup.put(b, "b");
+        assertEquals("a", dedup.get(a));
+        dedup.put(c, "c");
+        assertNull(dedup.get(b));
+        assertEquals("a", dedup.get(a));
+        assertEquals("c", dedup.get(c));
+        assertEquals(3, dedup.getHits());
+        assertEquals(1, dedup.getMisses());
+    }
+
+    @Test
+    void tellsCollidingTemplatesApart() {
+        DedupFilter<String> dedup = new DedupFilter<>(10);
+        QueryFingerprint first = new QueryFingerprint(42, 1);
+        QueryFingerprint collision = new QueryFingerprint(42, 2);
+        dedup.put(first, "first");
+        assertNull(dedup.get(collision));
+        dedup.put(collision, "collision");
+        assertEquals("collision", dedup.get(collision));
+        assertNull(dedup.get(first));
+    }
+
+    private static void assertSameTemplate(String query, String other) {
+        QueryFingerprint fp = fingerprint(query);
+        QueryFingerprint otherFp = fingerprint(other);
+        assertEquals(fp.getHash(), otherFp.getHash());
+        assertEquals(fp.getCheck(), otherFp.getCheck());
+    }
+
+    private static void assertDifferentTemplate(String query, String other) {
+        assertNotEquals(fingerprint(query).getHash(), fingerprint(other).getHash());
+        assertNotEquals(fingerprint(query).getCheck(), fingerprint(other).getCheck());
+    }
+
+    private static QueryFingerprint fingerprint(String query) {
+        return QueryFingerprint.of(query.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
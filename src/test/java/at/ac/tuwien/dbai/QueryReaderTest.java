@@ -0,0 +1,192 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Reading queries from plain files, gzip files and tar bundles.
+ */
+class QueryReaderTest {
+
+    private static final String LONG_NAME = String.join("/", Collections.nCopies(30, "dir")) + "/q.sql";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsLongTarNames() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "././@LongLink", 'L', (LONG_NAME + "\0").getBytes(StandardCharsets.UTF_8));
+        entry(tar, LONG_NAME.substring(0, 100), '0', bytes("SELECT 1"));
+        entry(tar, "notes.txt", '0', bytes("not a query"));
+        entry(tar, "short.sql", '0', bytes("SELECT 2"));
+        tar.write(new byte[1024]);
+        Path bundle = dir.resolve("b.tar");
+        Files.write(bundle, tar.toByteArray());
+
+        List<QueryReader.QueryFile> files = readAll(bundle.toString());
+        assertEquals(2, files.size());
+        assertEquals(bundle + "/" + LONG_NAME, files.get(0).getName());
+        assertEquals("SELECT 1", new String(files.get(0).getContent(), StandardCharsets.UTF_8));
+        assertEquals(bundle + "/short.sql", files.get(1).getName());
+        assertEquals("SELECT 2", new String(files.get(1).getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsPaxNamesAndSizes() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "PaxHeaders/q.sql", 'x', bytes(pax("path", LONG_NAME) + pax("size", "8") + pax("mtime", "1.5")));
+        // the size of the header is ignored, as it would be when it overflows
+        entry(tar, "q.sql", '0', bytes("SELECT 6"), 1);
+        entry(tar, "PaxHeaders/notes", 'x', bytes(pax("path", "notes.txt")));
+        entry(tar, "notes.sql", '0', bytes("not a query"));
+        entry(tar, "after.sql", '0', bytes("SELECT 7"));
+        tar.write(new byte[1024]);
+        Path bundle = dir.resolve("p.tar");
+        Files.write(bundle, tar.toByteArray());
+
+        List<QueryReader.QueryFile> files = readAll(bundle.toString());
+        assertEquals(Arrays.asList(bundle + "/" + LONG_NAME, bundle + "/after.sql"), names(files));
+        assertEquals("SELECT 6", new String(files.get(0).getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reportsInvalidPaxHeaders() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "PaxHeaders/q.sql", 'x', bytes("99 path=q.sql\n"));
+        entry(tar, "q.sql", '0', bytes("SELECT 8"));
+        tar.write(new byte[1024]);
+        Path bundle = dir.resolve("i.tar");
+        Files.write(bundle, tar.toByteArray());
+        List<QueryReader.QueryFile> files = readAll(bundle.toString());
+        assertEquals(1, files.size());
+        assertNotNull(files.get(0).getError());
+    }
+
+    @Test
+    void entriesKeepTheirDirectories() {
+        String bundle = dir.resolve("b.tar.gz").toString();
+        assertEquals("a/q", App.baseName(bundle + "/a/q.sql"));
+        assertEquals("b/q", App.baseName(bundle + "/b/q.sql"));
+        assertEquals("q", App.baseName(bundle + "/q.sql"));
+        // the outputs of an entry stay within the output directory
+        assertEquals("etc/q", App.baseName(bundle + "//../etc/./q.sql"));
+        assertEquals("q", App.baseName(dir.resolve("x").resolve("q.sql").toString()));
+        assertEquals("a.b/q", App.baseName(bundle + "/a.b/q.sql"));
+        assertEquals("a/q.sql", QueryReader.entryName(bundle + "/a/q.sql"));
+        assertNull(QueryReader.entryName(dir.resolve("q.sql").toString()));
+    }
+
+    @Test
+    void readsGzippedTarBundles() throws IOException {
+        Path bundle = dir.resolve("b.tgz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(bundle))) {
+            ByteArrayOutputStream tar = new ByteArrayOutputStream();
+            // an entry of exactly one block is not followed by padding
+            entry(tar, "a.sql", '0', new byte[512]);
+            entry(tar, "b.sql", '0', bytes("SELECT 3"));
+            tar.write(new byte[1024]);
+            out.write(tar.toByteArray());
+        }
+        List<QueryReader.QueryFile> files = readAll(bundle.toString());
+        assertEquals(Arrays.asList(bundle + "/a.sql", bundle + "/b.sql"), names(files));
+        assertEquals(512, files.get(0).getContent().length);
+    }
+
+    @Test
+    void readsGzipFilesUnderTheirPlainName() throws IOException {
+        Path query = dir.resolve("q.sql.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(query))) {
+            out.write(bytes("SELECT 4"));
+        }
+        List<QueryReader.QueryFile> files = readAll(query.toString());
+        assertEquals(Collections.singletonList(dir.resolve("q.sql").toString()), names(files));
+        assertEquals("SELECT 4", new String(files.get(0).getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reportsTruncatedBundles() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "a.sql", '0', bytes("SELECT 5"));
+        byte[] truncated = Arrays.copyOf(tar.toByteArray(), 512 + 4);
+        Path bundle = dir.resolve("t.tar");
+        Files.write(bundle, truncated);
+        List<QueryReader.QueryFile> files = readAll(bundle.toString());
+        assertEquals(1, files.size());
+        assertNull(files.get(0).getContent());
+        assertNotNull(files.get(0).getError());
+    }
+
+    private static List<QueryReader.QueryFile> readAll(String file) throws IOException {
+        QueryReader reader = QueryReader.start(Collections.singletonList(file));
+        List<QueryReader.QueryFile> files = new ArrayList<>();
+        for (QueryReader.QueryFile f = reader.next(); f != null; f = reader.next()) {
+            files.add(f);
+        }
+        return files;
+    }
+
+    private static List<String> names(List<QueryReader.QueryFile> files) {
+        List<String> names = new ArrayList<>();
+        for (QueryReader.QueryFile f : files) {
+            names.add(f.getName());
+        }
+        return names;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a pax record, whose length counts its own digits.
+     */
+    private static String pax(String key, String value) {
+        String record = " " + key + "=" + value + "\n";
+        int length = record.length() + 1;
+        while (Integer.toString(length).length() + record.length() != length) {
+            length++;
+        }
+        return length + record;
+    }
+
+    /**
+     * Writes a ustar entry: the header block, then the data padded to a
+     * whole number of blocks.
+     */
+    private static void entry(ByteArrayOutputStream tar, String name, char type, byte[] data) throws IOException {
+        entry(tar, name, type, data, data.length);
+    }
+
+    private static void entry(ByteArrayOutputStream tar, String name, char type, byte[] data, int headerSize)
+            throws IOException {
+        byte[] header = new byte[512];
+        byte[] nameBytes = bytes(name);
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        byte[] size = bytes(String.format("%011o", headerSize));
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = (byte) type;
+        byte[] magic = bytes("ustar\u000000");
+        System.arraycopy(magic, 0, header, 257, magic.length);
+        tar.write(header);
+        tar.write(data);
+        tar.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+}
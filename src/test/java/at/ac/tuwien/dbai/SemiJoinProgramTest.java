@@ -0,0 +1,97 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Semi-join programs of small acyclic queries, statement by statement.
+ */
+class SemiJoinProgramTest {
+
+    private static List<String> program(String query) throws JSQLParserException {
+        HypergraphBuilder builder = App.convert(query, null, null).getMain().getBuilder();
+        return SemiJoinProgram.generate(builder, builder.toHypergraph());
+    }
+
+    @Test
+    void pathTraceIsAJoinTree() {
+        // r and t are removed into s, the root
+        assertArrayEquals(new int[] {1, -1, 1}, SemiJoinProgram.joinTree(Hypergraphs.of("r(a,b)", "s(b,c)", "t(c,d)")));
+    }
+
+    @Test
+    void reducesAPath() throws JSQLParserException {
+        assertEquals(Arrays.asList(
+                "-- full reducer of the join tree rooted at s",
+                "CREATE TEMPORARY TABLE sj_s AS SELECT * FROM s;",
+                "CREATE TEMPORARY TABLE sj_r AS SELECT * FROM r WHERE r.a = 1;",
+                "CREATE TEMPORARY TABLE sj_t AS SELECT * FROM t;",
+                "DELETE FROM sj_s WHERE NOT EXISTS (SELECT 1 FROM sj_t WHERE sj_t.c = sj_s.c);",
+                "DELETE FROM sj_s WHERE NOT EXISTS (SELECT 1 FROM sj_r WHERE sj_r.b = sj_s.b);",
+                "DELETE FROM sj_r WHERE NOT EXISTS (SELECT 1 FROM sj_s WHERE sj_s.b = sj_r.b);",
+                "DELETE FROM sj_t WHERE NOT EXISTS (SELECT 1 FROM sj_s WHERE sj_s.c = sj_t.c);",
+                "-- join of the reduced tables",
+                "SELECT * FROM sj_s s, sj_r r, sj_t t WHERE r.b = s.b AND s.c = t.c;",
+                "DROP TABLE sj_s;",
+                "DROP TABLE sj_r;",
+                "DROP TABLE sj_t;"),
+                program("SELECT * FROM r, s, t WHERE r.b = s.b AND s.c = t.c AND r.a = 1"));
+    }
+
+    @Test
+    void parametersKeepTheirNumber() throws JSQLParserException {
+        List<String> program = program("SELECT * FROM r, s WHERE s.c = ? AND r.b = s.b AND r.a = ?");
+        assertEquals("CREATE TEMPORARY TABLE sj_s AS SELECT * FROM s WHERE s.c = ?1;", program.get(1));
+        assertEquals("CREATE TEMPORARY TABLE sj_r AS SELECT * FROM r WHERE r.a = ?2;", program.get(2));
+    }
+
+    @Test
+    void sanitisedNamesAreUnique() throws JSQLParserException {
+        // x.y and x_y are both sanitised to x_y
+        List<String> copies = program("SELECT * FROM x.y, r x_y WHERE x.y.a = x_y.a").subList(1, 3);
+        assertEquals(2, copies.stream().map(c -> c.split(" ")[3]).distinct().count());
+    }
+
+    @Test
+    void blocksHaveNoProgram() throws JSQLParserException {
+        assertEquals(Collections.singletonList("-- c reads the query block c, not a table"),
+                program("WITH c AS (SELECT * FROM r) SELECT * FROM c, s WHERE c.a = s.a"));
+        assertEquals(Collections.singletonList("-- d reads the query block d, not a table"),
+                program("SELECT * FROM (SELECT * FROM r) d, s WHERE d.a = s.a"));
+    }
+
+    @Test
+    void appliesFilters() throws JSQLParserException {
+        List<String> program = program("SELECT * FROM r, s WHERE r.b = s.b AND r.a < ? AND (r.a < s.c OR s.c IS NULL)");
+        assertTrue(program.contains("CREATE TEMPORARY TABLE sj_r AS SELECT * FROM r WHERE r.a < ?1;"));
+        assertTrue(program.contains("SELECT * FROM sj_s s, sj_r r WHERE r.b = s.b AND (r.a < s.c OR s.c IS NULL);")
+                || program.contains("SELECT * FROM sj_r r, sj_s s WHERE r.b = s.b AND (r.a < s.c OR s.c IS NULL);"));
+    }
+
+    @Test
+    void outerJoinsAndCorrelatedBlocksHaveNoProgram() throws JSQLParserException {
+        assertEquals(Collections.singletonList("-- the query has an outer join"),
+                program("SELECT * FROM r LEFT JOIN s ON r.a = s.a"));
+        QueryBlocks blocks = App.convert("SELECT * FROM r WHERE EXISTS (SELECT * FROM s WHERE s.a = r.a)", null,
+                null);
+        HypergraphBuilder subquery = blocks.getBlocks().get(1).getBuilder();
+        assertEquals(Collections.singletonList("-- the query refers to columns of an enclosing query"),
+                SemiJoinProgram.generate(subquery, subquery.toHypergraph()));
+    }
+
+    @Test
+    void cyclicQueryHasNoProgram() throws JSQLParserException {
+        assertEquals(Collections.singletonList("-- the query is cyclic"),
+                program("SELECT * FROM r, s, t WHERE r.b = s.b AND s.c = t.c AND t.a = r.a"));
+    }
+
+}
@@ -0,0 +1,78 @@
+package at.ac.tuwien.dbai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * Shared sub-queries of small workloads.
+ */
+class SubgraphMinerTest {
+
+    @Test
+    void selfJoinsMatchWhateverTheirAliases() throws JSQLParserException {
+        // the two atoms of r are listed in the opposite order in q2
+        List<String> shared = mine(2, "SELECT * FROM r a, r b, s c WHERE a.x = c.x AND b.y = c.y",
+                "SELECT * FROM r p, r q, s c WHERE q.x = c.x AND p.y = c.y");
+        assertEquals(Collections.singletonList("score=4 support=2 atoms=3 example=q0: "
+                + "SELECT * FROM r t0, r t1, s t2 WHERE t0.x = t2.x AND t1.y = t2.y"), shared);
+    }
+
+    @Test
+    void countsQueriesNotOccurrences() throws JSQLParserException {
+        // r joins s twice in q0, but q0 is one query
+        List<String> shared = mine(2, "SELECT * FROM r a, s b, r c, s d WHERE a.x = b.x AND c.x = d.x",
+                "SELECT * FROM r a, s b WHERE a.x = b.x");
+        assertEquals(Collections.singletonList("score=2 support=2 atoms=2 example=q0: "
+                + "SELECT * FROM r t0, s t1 WHERE t0.x = t1.x"), shared);
+        assertEquals(Collections.emptyList(), mine(3, "SELECT * FROM r a, s b, r c, s d WHERE a.x = b.x AND c.x = d.x",
+                "SELECT * FROM r a, s b WHERE a.x = b.x"));
+    }
+
+    @Test
+    void keepsOnlyClosedCandidates() throws JSQLParserException {
+        // s-t occurs exactly where r-s-t does, r-s occurs once more
+        List<String> shared = mine(2, "SELECT * FROM r a, s b, t c WHERE a.x = b.x AND b.y = c.y",
+                "SELECT * FROM r a, s b, t c WHERE a.x = b.x AND b.y = c.y",
+                "SELECT * FROM r a, s b WHERE a.x = b.x");
+        assertEquals(Arrays.asList(
+                "score=4 support=2 atoms=3 example=q0: SELECT * FROM r t0, s t1, t t2 WHERE t0.x = t1.x AND t1.y = t2.y",
+                "score=3 support=3 atoms=2 example=q0: SELECT * FROM r t0, s t1 WHERE t0.x = t1.x"), shared);
+    }
+
+    @Test
+    void reportsCappedQueries() throws JSQLParserException {
+        // q0 has three pairs of atoms joined by shared signatures, q1 only one
+        SubgraphMiner miner = new SubgraphMiner(1);
+        add(miner, "q0", "SELECT * FROM r a, s b, t c WHERE a.x = b.x AND a.x = c.x");
+        add(miner, "q1", "SELECT * FROM r a, s b, t c, u d WHERE a.x = b.x AND c.x = d.x");
+        add(miner, "q2", "SELECT * FROM r a, t c WHERE a.x = c.x");
+        add(miner, "q3", "SELECT * FROM s b, t c WHERE b.x = c.x");
+        miner.mine(2);
+        assertEquals(1, miner.getCapped());
+        SubgraphMiner unlimited = new SubgraphMiner();
+        add(unlimited, "q0", "SELECT * FROM r a, s b, t c WHERE a.x = b.x AND a.x = c.x");
+        unlimited.mine(2);
+        assertEquals(0, unlimited.getCapped());
+    }
+
+    private static List<String> mine(int minSupport, String... queries) throws JSQLParserException {
+        SubgraphMiner miner = new SubgraphMiner();
+        for (int i = 0; i < queries.length; i++) {
+            add(miner, "q" + i, queries[i]);
+        }
+        return miner.mine(minSupport);
+    }
+
+    private static void add(SubgraphMiner miner, String name, String query) throws JSQLParserException {
+        HypergraphBuilder builder = App.convert(query, null, null).getMain().getBuilder();
+        miner.add(name, builder, builder.toHypergraph());
+    }
+
+}